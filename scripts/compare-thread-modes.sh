@@ -0,0 +1,128 @@
+#!/bin/bash
+
+# ==============================================
+# Platform vs Virtual Thread Load Comparison
+# ==============================================
+# Boots the application jar once per thread mode against the configured
+# database, drives /clients/all and /users/login with `hey`, and prints
+# throughput and p99 latency for each mode side by side.
+#
+# Requirements: a built jar (./gradlew bootJar), a reachable PostgreSQL
+# configured through the usual DATABASE_* variables, curl and hey
+# (https://github.com/rakyll/hey).
+
+set -e
+
+PORT=${PORT:-8080}
+DURATION=${DURATION:-30s}
+CONCURRENCY=${CONCURRENCY:-200}
+SEED_CLIENTS=${SEED_CLIENTS:-500}
+JAR=${JAR:-$(ls build/libs/*.jar 2>/dev/null | grep -v plain | head -n 1)}
+BASE_URL="http://localhost:$PORT/api"
+EMAIL="loadtest-$(date +%s)@example.com"
+PASSWORD="password123"
+
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+BLUE='\033[0;34m'
+NC='\033[0m'
+
+print_status() {
+    echo -e "${BLUE}[INFO]${NC} $1"
+}
+
+print_success() {
+    echo -e "${GREEN}[SUCCESS]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+if [ -z "$JAR" ] || [ ! -f "$JAR" ]; then
+    print_error "Application jar not found, run ./gradlew bootJar first"
+    exit 1
+fi
+
+if ! command -v hey > /dev/null; then
+    print_error "hey is required: go install github.com/rakyll/hey@latest"
+    exit 1
+fi
+
+start_app() {
+    local virtual=$1
+    VIRTUAL_THREADS_ENABLED=$virtual SERVER_PORT=$PORT LOG_LEVEL=WARN SECURITY_LOG_LEVEL=WARN RATE_LIMIT_ENABLED=false \
+        java -jar "$JAR" > "build/compare-threads-$virtual.log" 2>&1 &
+    APP_PID=$!
+
+    for _ in $(seq 1 60); do
+        if curl -sf "$BASE_URL/actuator/health" > /dev/null; then
+            return 0
+        fi
+        sleep 2
+    done
+
+    print_error "Application did not become healthy, see build/compare-threads-$virtual.log"
+    kill $APP_PID
+    exit 1
+}
+
+stop_app() {
+    kill $APP_PID
+    wait $APP_PID 2>/dev/null || true
+}
+
+seed_user() {
+    curl -sf -o /dev/null -X POST "$BASE_URL/users/register" \
+        -H "Content-Type: application/json" \
+        -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\",\"name\":\"Load\",\"surname\":\"Test\"}" || true
+
+    TOKEN=$(curl -sf -X POST "$BASE_URL/users/login" -d "email=$EMAIL&password=$PASSWORD" |
+        sed -E 's/.*"token":"([^"]+)".*/\1/')
+
+    local count
+    count=$(curl -sf -H "Authorization: Bearer $TOKEN" "$BASE_URL/clients/all" | grep -o '"id"' | wc -l)
+    if [ "$count" -lt "$SEED_CLIENTS" ]; then
+        seq 1 "$SEED_CLIENTS" |
+            sed -E "s/(.*)/{\"idType\":\"CC\",\"idNumber\":\"LT-$EMAIL-\1\",\"name\":\"Load\",\"surname\":\"Client \1\"}/" |
+            curl -sf -o /dev/null -X POST "$BASE_URL/clients/bulk" \
+                -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/x-ndjson" --data-binary @-
+    fi
+}
+
+# Prints "<requests/sec> <p99 seconds>" from hey's summary
+run_hey() {
+    hey -z "$DURATION" -c "$CONCURRENCY" "$@" |
+        awk '/Requests\/sec/ { rps = $2 } /99% in/ { p99 = $3 } END { print rps, p99 }'
+}
+
+declare -A RESULTS
+
+for virtual in false true; do
+    mode=$([ "$virtual" = "true" ] && echo "virtual" || echo "platform")
+    print_status "Starting application with $mode threads..."
+    start_app $virtual
+    seed_user
+
+    print_status "Driving /clients/all for $DURATION at concurrency $CONCURRENCY..."
+    RESULTS[$mode,clients]=$(run_hey -H "Authorization: Bearer $TOKEN" "$BASE_URL/clients/all")
+
+    print_status "Driving /users/login for $DURATION at concurrency $CONCURRENCY..."
+    RESULTS[$mode,login]=$(run_hey -m POST -T "application/x-www-form-urlencoded" \
+        -d "email=$EMAIL&password=$PASSWORD" "$BASE_URL/users/login")
+
+    stop_app
+done
+
+echo
+printf "%-14s %-10s %14s %12s\n" "Endpoint" "Threads" "Requests/sec" "p99 (s)"
+for endpoint in clients login; do
+    for mode in platform virtual; do
+        read -r rps p99 <<< "${RESULTS[$mode,$endpoint]}"
+        printf "%-14s %-10s %14s %12s\n" \
+            "$([ $endpoint = clients ] && echo /clients/all || echo /users/login)" "$mode" "$rps" "$p99"
+    done
+done
+echo
+
+print_success "Comparison completed"
@@ -0,0 +1,57 @@
+-- ==============================================
+-- Client Search Benchmark Dataset
+-- ==============================================
+-- Creates a benchmark user owning a large number of clients with realistic
+-- names, then times representative /clients/search queries.
+--
+-- Usage:
+--   psql -U postgres -d curooclientback -v clients=1000000 -f scripts/generate-search-dataset.sql
+--
+-- The benchmark user logs in as bench@example.com / password123.
+
+\set ON_ERROR_STOP on
+\if :{?clients}
+\else
+\set clients 1000000
+\endif
+
+CREATE EXTENSION IF NOT EXISTS pgcrypto;
+
+INSERT INTO Users (name, surname, email, password)
+VALUES ('Bench', 'User', 'bench@example.com', crypt('password123', gen_salt('bf', 10)))
+ON CONFLICT (email) DO NOTHING;
+
+INSERT INTO Clients (user_id, id_type, id_number, name, surname)
+SELECT u.user_id,
+       (ARRAY['CC', 'TI', 'CE', 'PA'])[1 + (g % 4)],
+       'BENCH-' || lpad(g::text, 10, '0'),
+       (ARRAY['Ana', 'Carlos', 'Daniela', 'Esteban', 'Fernanda', 'Gabriel', 'Helena', 'Ivan',
+              'Julia', 'Luis', 'Mariana', 'Nicolas', 'Olga', 'Pablo', 'Sofia', 'Tomas'])[1 + (g % 16)]
+           || ' ' || substr(md5(g::text), 1, 6),
+       (ARRAY['Gomez', 'Rodriguez', 'Martinez', 'Hernandez', 'Lopez', 'Garcia', 'Perez', 'Sanchez',
+              'Ramirez', 'Torres', 'Rojas', 'Vargas', 'Moreno', 'Castro', 'Ortiz', 'Silva'])[1 + ((g / 16) % 16)]
+           || ' ' || substr(md5((g * 7)::text), 1, 6)
+FROM generate_series(1, :clients) AS g
+CROSS JOIN (SELECT user_id FROM Users WHERE email = 'bench@example.com') AS u
+ON CONFLICT (id_number) DO NOTHING;
+
+ANALYZE Clients;
+
+\timing on
+
+-- Substring of a name, surname and ID number, as sent by /clients/search
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM Clients c
+WHERE c.user_id = (SELECT user_id FROM Users WHERE email = 'bench@example.com')
+  AND c.client_id > 0
+  AND (c.name ILIKE '%a3f1%' ESCAPE '!' OR c.surname ILIKE '%a3f1%' ESCAPE '!' OR c.id_number ILIKE '%a3f1%' ESCAPE '!')
+ORDER BY c.client_id
+LIMIT 101;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM Clients c
+WHERE c.user_id = (SELECT user_id FROM Users WHERE email = 'bench@example.com')
+  AND c.client_id > 0
+  AND (c.name ILIKE '%0004242%' ESCAPE '!' OR c.surname ILIKE '%0004242%' ESCAPE '!' OR c.id_number ILIKE '%0004242%' ESCAPE '!')
+ORDER BY c.client_id
+LIMIT 101;
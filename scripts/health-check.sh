@@ -9,6 +9,8 @@ set -e
 # Configuration
 HOST=${HOST:-localhost}
 PORT=${PORT:-8080}
+# Actuator endpoints are served here; the prod profile moves them to 8081
+MANAGEMENT_PORT=${MANAGEMENT_PORT:-$PORT}
 TIMEOUT=${TIMEOUT:-10}
 ENVIRONMENT=${ENVIRONMENT:-dev}
 
@@ -40,10 +42,14 @@ check_endpoint() {
     local endpoint=$1
     local description=$2
     local expected_status=${3:-200}
+    local port=$PORT
+    case "$endpoint" in
+        /api/actuator/*) port=$MANAGEMENT_PORT ;;
+    esac
     
     print_status "Checking $description..."
     
-    response=$(curl -s -o /dev/null -w "%{http_code}" --connect-timeout $TIMEOUT "http://$HOST:$PORT$endpoint" || echo "000")
+    response=$(curl -s -o /dev/null -w "%{http_code}" --connect-timeout $TIMEOUT "http://$HOST:$port$endpoint" || echo "000")
     
     if [ "$response" -eq "$expected_status" ]; then
         print_success "$description is healthy (HTTP $response)"
@@ -58,7 +64,7 @@ check_endpoint() {
 check_detailed_health() {
     print_status "Getting detailed health information..."
     
-    health_response=$(curl -s --connect-timeout $TIMEOUT "http://$HOST:$PORT/api/actuator/health" || echo "{}")
+    health_response=$(curl -s --connect-timeout $TIMEOUT "http://$HOST:$MANAGEMENT_PORT/api/actuator/health" || echo "{}")
     
     if [ "$health_response" != "{}" ]; then
         echo "Health Details:"
@@ -83,7 +89,7 @@ check_detailed_health() {
 echo "🏥 Clientback Application Health Check"
 echo "======================================"
 echo "Environment: $ENVIRONMENT"
-echo "Target: http://$HOST:$PORT"
+echo "Target: http://$HOST:$PORT (management port $MANAGEMENT_PORT)"
 echo "Timeout: ${TIMEOUT}s"
 echo ""
 
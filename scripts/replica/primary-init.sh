@@ -0,0 +1,4 @@
+#!/bin/sh
+# Lets the local replica stream WAL from the primary, run once when the primary data directory is created
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
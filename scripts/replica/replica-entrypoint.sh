@@ -0,0 +1,17 @@
+#!/bin/sh
+# Starts a streaming replica of the primary, cloning it on the first start
+set -e
+
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    mkdir -p "$PGDATA"
+    chown postgres:postgres "$PGDATA"
+    chmod 0700 "$PGDATA"
+    echo "Cloning the primary $PRIMARY_HOST into $PGDATA"
+    until su-exec postgres pg_basebackup -h "$PRIMARY_HOST" -U "$PRIMARY_USER" -D "$PGDATA" -R -X stream; do
+        echo "Primary not ready, retrying"
+        rm -rf "${PGDATA:?}"/*
+        sleep 2
+    done
+fi
+
+exec docker-entrypoint.sh postgres
@@ -37,8 +37,62 @@ CREATE TABLE Clients (
     modification_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Hibernate allocates client IDs in blocks of 50 so inserts can be batched
+ALTER SEQUENCE clients_client_id_seq INCREMENT BY 50;
+
 -- Apply trigger to Clients
 CREATE TRIGGER set_modification_date_clients
 BEFORE UPDATE ON Clients
 FOR EACH ROW
 EXECUTE FUNCTION update_modified_column();
+
+-- Optimistic locking versions, checked and incremented by every update
+ALTER TABLE Users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE Clients ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Refresh token families: every login starts one, and each refresh replaces its current token ID, so a
+-- rotated or logged out refresh token is rejected on every instance and after restarts
+CREATE TABLE IF NOT EXISTS refresh_token_families (
+    family_id UUID PRIMARY KEY,
+    user_id INT NOT NULL,
+    token_id UUID NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_families_user_id ON refresh_token_families (user_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_families_expires_at ON refresh_token_families (expires_at);
+
+-- Ownership-scoped lookups filter on user_id; keep them on index scans
+CREATE INDEX IF NOT EXISTS idx_clients_user_id_client_id ON Clients (user_id, client_id);
+CREATE INDEX IF NOT EXISTS idx_clients_user_id_id_type_id_number ON Clients (user_id, id_type, id_number);
+
+-- Substring search on name, surname and id_number is served by trigram indexes
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_clients_name_trgm ON Clients USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_clients_surname_trgm ON Clients USING gin (surname gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_clients_id_number_trgm ON Clients USING gin (id_number gin_trgm_ops);
+
+-- Outbox of client changes, written with each change and drained by the event relay
+CREATE SEQUENCE IF NOT EXISTS client_events_event_id_seq INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS client_events (
+    event_id BIGINT PRIMARY KEY,
+    event_type VARCHAR(20) NOT NULL,
+    client_id INT NOT NULL,
+    user_id INT NOT NULL,
+    payload TEXT NOT NULL,
+    occurred_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    attempts INT NOT NULL DEFAULT 0
+);
+ALTER TABLE client_events ADD COLUMN IF NOT EXISTS attempts INT NOT NULL DEFAULT 0;
+
+-- Events the relay gave up on, kept for inspection; move them back to client_events to publish them again
+CREATE TABLE IF NOT EXISTS client_events_dead (
+    event_id BIGINT PRIMARY KEY,
+    event_type VARCHAR(20) NOT NULL,
+    client_id INT NOT NULL,
+    user_id INT NOT NULL,
+    payload TEXT NOT NULL,
+    occurred_at TIMESTAMP NOT NULL,
+    attempts INT NOT NULL,
+    error TEXT,
+    dead_lettered_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,34 @@
+-- Shard directory, kept on the primary database (shard 0) next to the users.
+-- Safe to run again: when enabling sharding on an existing database, run it once before and once after
+-- every instance has been switched over, so clients created in between are registered too.
+
+-- Bumped by every move, so instances poll the placements moved since their last look
+CREATE SEQUENCE IF NOT EXISTS user_shards_version_seq;
+
+-- Shard holding the clients of each user; users without an entry are on their consistent hash owner.
+-- Writes to a moved user wait until writable_at, when every instance reads it from the new shard.
+CREATE TABLE IF NOT EXISTS user_shards (
+    user_id INT PRIMARY KEY,
+    shard INT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    writable_at TIMESTAMP
+);
+
+ALTER TABLE user_shards ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE user_shards ADD COLUMN IF NOT EXISTS writable_at TIMESTAMP;
+CREATE INDEX IF NOT EXISTS idx_user_shards_version ON user_shards (version);
+
+-- Owner of every client ID number, which must be unique across all shards
+CREATE TABLE IF NOT EXISTS client_id_numbers (
+    id_number VARCHAR(50) PRIMARY KEY,
+    user_id INT NOT NULL
+);
+
+-- Clients written before sharding are on the primary: pin their owners to it and register their ID numbers
+INSERT INTO user_shards (user_id, shard)
+SELECT DISTINCT user_id, 0 FROM Clients WHERE user_id IS NOT NULL
+ON CONFLICT (user_id) DO NOTHING;
+
+INSERT INTO client_id_numbers (id_number, user_id)
+SELECT id_number, user_id FROM Clients WHERE user_id IS NOT NULL
+ON CONFLICT (id_number) DO NOTHING;
@@ -0,0 +1,5 @@
+#!/bin/sh
+# Creates the clients schema of a local shard, run once when the shard data directory is created
+set -e
+psql -v ON_ERROR_STOP=1 -v shard_index="$SHARD_INDEX" --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" \
+    -f /shard-schema.sql
@@ -0,0 +1,71 @@
+-- Clients schema of an additional shard, run on each shard database with its index (1 to N):
+--   psql -v shard_index=1 -f scripts/shard/shard-schema.sql
+-- Users and the shard directory stay on the primary, so user_id references no table here.
+
+CREATE OR REPLACE FUNCTION update_modified_column()
+RETURNS TRIGGER AS $$
+BEGIN
+   NEW.modification_date = NOW();
+   RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TABLE IF NOT EXISTS Clients (
+    client_id SERIAL PRIMARY KEY,
+    user_id INT,
+    id_type VARCHAR(50) NOT NULL,
+    id_number VARCHAR(50) UNIQUE NOT NULL,
+    name VARCHAR(100) NOT NULL,
+    surname VARCHAR(100) NOT NULL,
+    creation_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    modification_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+ALTER SEQUENCE clients_client_id_seq INCREMENT BY 50;
+
+CREATE OR REPLACE TRIGGER set_modification_date_clients
+BEFORE UPDATE ON Clients
+FOR EACH ROW
+EXECUTE FUNCTION update_modified_column();
+
+CREATE INDEX IF NOT EXISTS idx_clients_user_id_client_id ON Clients (user_id, client_id);
+CREATE INDEX IF NOT EXISTS idx_clients_user_id_id_type_id_number ON Clients (user_id, id_type, id_number);
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_clients_name_trgm ON Clients USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_clients_surname_trgm ON Clients USING gin (surname gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_clients_id_number_trgm ON Clients USING gin (id_number gin_trgm_ops);
+
+CREATE SEQUENCE IF NOT EXISTS client_events_event_id_seq INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS client_events (
+    event_id BIGINT PRIMARY KEY,
+    event_type VARCHAR(20) NOT NULL,
+    client_id INT NOT NULL,
+    user_id INT NOT NULL,
+    payload TEXT NOT NULL,
+    occurred_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    attempts INT NOT NULL DEFAULT 0
+);
+ALTER TABLE client_events ADD COLUMN IF NOT EXISTS attempts INT NOT NULL DEFAULT 0;
+
+-- Events the relay gave up on, kept for inspection; move them back to client_events to publish them again
+CREATE TABLE IF NOT EXISTS client_events_dead (
+    event_id BIGINT PRIMARY KEY,
+    event_type VARCHAR(20) NOT NULL,
+    client_id INT NOT NULL,
+    user_id INT NOT NULL,
+    payload TEXT NOT NULL,
+    occurred_at TIMESTAMP NOT NULL,
+    attempts INT NOT NULL,
+    error TEXT,
+    dead_lettered_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Hibernate keeps one block of IDs per sequence for all shards, so a block taken from one shard's sequence
+-- may be used on another. Every shard's sequences start in a range of their own, which keeps IDs unique
+-- across shards, as the shared second-level cache and moving clients between shards require.
+SELECT setval('clients_client_id_seq',
+        GREATEST(:shard_index * 100000000, (SELECT last_value FROM clients_client_id_seq)));
+SELECT setval('client_events_event_id_seq',
+        GREATEST(:shard_index * 1000000000000000, (SELECT last_value FROM client_events_event_id_seq)));
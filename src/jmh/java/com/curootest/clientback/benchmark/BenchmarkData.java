@@ -0,0 +1,66 @@
+package com.curootest.clientback.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.persistence.entity.Client;
+import com.curootest.clientback.persistence.entity.User;
+
+/**
+ * Deterministic fixtures shared by the benchmarks
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static User user(int userId) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setName("Bench");
+        user.setSurname("User " + userId);
+        user.setEmail("bench-" + userId + "@example.com");
+        user.setPassword("{bcrypt}not-a-real-hash");
+        user.setMobilePhone(String.valueOf(3_000_000_000L + userId));
+        return user;
+    }
+
+    static List<User> users(int rows) {
+        List<User> users = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+
+    static List<Client> clients(int rows) {
+        User owner = user(1);
+        List<Client> clients = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            Client client = new Client();
+            client.setClientId(i);
+            client.setUserId(owner);
+            client.setIdType(i % 3 == 0 ? "NIT" : "CC");
+            client.setIdNumber(String.valueOf(1_000_000_000L + i));
+            client.setName("Client");
+            client.setSurname("Number " + i);
+            clients.add(client);
+        }
+        return clients;
+    }
+
+    static List<ClientDTO> clientDTOs(int rows) {
+        List<ClientDTO> clientDTOs = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            ClientDTO clientDTO = new ClientDTO();
+            clientDTO.setId(String.valueOf(i));
+            clientDTO.setIdType(i % 3 == 0 ? "NIT" : "CC");
+            clientDTO.setIdNumber(String.valueOf(1_000_000_000L + i));
+            clientDTO.setName("Client");
+            clientDTO.setSurname("Number " + i);
+            clientDTOs.add(clientDTO);
+        }
+        return clientDTOs;
+    }
+}
@@ -0,0 +1,70 @@
+package com.curootest.clientback.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.curootest.clientback.domain.ClientDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Time to serialize a client listing the way the /clients/all endpoints write it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClientSerializationBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int rows;
+
+    private ObjectMapper objectMapper;
+    private List<ClientDTO> clientDTOs;
+
+    @Setup
+    public void setUp() {
+        // Same defaults Spring Boot applies to the ObjectMapper used by the controllers
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        clientDTOs = BenchmarkData.clientDTOs(rows);
+    }
+
+    /**
+     * The buffered response of GET /clients/all
+     */
+    @Benchmark
+    public byte[] writeList() throws IOException {
+        return objectMapper.writeValueAsBytes(clientDTOs);
+    }
+
+    /**
+     * The element-by-element response of GET /clients/all?stream=true
+     */
+    @Benchmark
+    public void writeStreamed() throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            generator.writeStartArray();
+            for (ClientDTO clientDTO : clientDTOs) {
+                objectMapper.writeValue(generator, clientDTO);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.curootest.clientback.benchmark;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.curootest.clientback.config.CustomUserDetails;
+import com.curootest.clientback.config.JwtKeyRing;
+import com.curootest.clientback.domain.UserDTO;
+import com.curootest.clientback.domain.dto.TokenClaims;
+import com.curootest.clientback.domain.service.JwtService;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tokens generated per second with the ES256 key ring of the dev profile, and one HMAC token validated
+ * per second the way the service did before the single-parse validation and the way it does now.
+ * Both validations verify the same HS256 signature, so they only differ in parsing;
+ * JwtSignatureBenchmark compares ES256 with HMAC.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET_KEY = "3cfa76ef14937c1c0ea519f8fc057a80fcd04a7420f8e8bcd0a7567c272e007b";
+
+    private JwtService jwtService;
+    private CustomUserDetails userDetails;
+    private String legacyToken;
+
+    @Setup
+    public void setUp() {
+        JwtKeyRing keyRing = new JwtKeyRing("", "", Duration.ofDays(7), Duration.ofMinutes(10),
+                1_209_600_000L, new SimpleMeterRegistry());
+        jwtService = new JwtService(keyRing, SECRET_KEY, 900_000L, 1_209_600_000L);
+
+        UserDTO user = new UserDTO();
+        user.setEmail("benchmark@example.com");
+        userDetails = new CustomUserDetails(user);
+
+        legacyToken = Jwts.builder()
+                .setSubject(userDetails.getUsername())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000L))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)))
+                .compact();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(userDetails);
+    }
+
+    /**
+     * The previous validation path: three parses, each building a new parser and decoding the key
+     */
+    @Benchmark
+    public boolean legacyValidation() {
+        final String username = legacyExtractAllClaims(legacyToken).getSubject();
+        return legacyExtractAllClaims(legacyToken).getSubject().equals(username)
+                && username.equals(userDetails.getUsername())
+                && !legacyExtractAllClaims(legacyToken).getExpiration().before(new Date());
+    }
+
+    /**
+     * The current validation path on the same token: one parse with the prebuilt parser and the legacy key
+     */
+    @Benchmark
+    public TokenClaims singleParseValidation() {
+        return jwtService.validateToken(legacyToken);
+    }
+
+    private static Claims legacyExtractAllClaims(String token) {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+        return Jwts
+                .parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,71 @@
+package com.curootest.clientback.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.UserDTO;
+import com.curootest.clientback.persistence.entity.Client;
+import com.curootest.clientback.persistence.entity.User;
+import com.curootest.clientback.persistence.mapper.ClientMapper;
+import com.curootest.clientback.persistence.mapper.UserMapper;
+
+/**
+ * Time to convert a full listing between entities and DTOs with the generated MapStruct mappers
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MapperBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int rows;
+
+    private ClientMapper clientMapper;
+    private UserMapper userMapper;
+    private List<Client> clients;
+    private List<ClientDTO> clientDTOs;
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        // Neither mapper calls the other for these conversions, so the Spring wiring is not needed
+        clientMapper = Mappers.getMapper(ClientMapper.class);
+        userMapper = Mappers.getMapper(UserMapper.class);
+
+        clients = BenchmarkData.clients(rows);
+        clientDTOs = BenchmarkData.clientDTOs(rows);
+        users = BenchmarkData.users(rows);
+    }
+
+    @Benchmark
+    public List<ClientDTO> toClientDTOs() {
+        return clientMapper.toClientDTOs(clients);
+    }
+
+    @Benchmark
+    public List<Client> toClients() {
+        return clientMapper.toClients(clientDTOs);
+    }
+
+    @Benchmark
+    public List<UserDTO> toUserDTOs() {
+        return userMapper.toUserDTOs(users);
+    }
+}
@@ -0,0 +1,167 @@
+package com.curootest.clientback.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The scenario of the Postman collection as a virtual user: register, log in, then
+ * repeatedly create, list, look up, update and delete a client with the issued token.
+ */
+final class ClientWorkload {
+
+    private static final String PASSWORD = "password123";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, EndpointMetrics> metrics = new ConcurrentHashMap<>();
+    private final AtomicLong sessions = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final String baseUrl;
+    private final int iterationsPerSession;
+    private volatile boolean recording;
+
+    ClientWorkload(String baseUrl, int iterationsPerSession) {
+        this.baseUrl = baseUrl;
+        this.iterationsPerSession = iterationsPerSession;
+    }
+
+    /**
+     * Only requests issued after this call are measured, earlier ones warm up the application
+     */
+    void startRecording() {
+        recording = true;
+    }
+
+    Map<String, EndpointMetrics> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Run sessions back to back until the deadline has passed
+     */
+    void runUntil(long deadlineNanos) {
+        while (System.nanoTime() < deadlineNanos) {
+            runSession(deadlineNanos);
+        }
+    }
+
+    private void runSession(long deadlineNanos) {
+        long session = sessions.incrementAndGet();
+        String email = "loadtest-" + runId + "-" + session + "@example.com";
+
+        Map<String, String> user = Map.of(
+                "name", "Load",
+                "surname", "Test " + session,
+                "email", email,
+                "password", PASSWORD);
+        if (send("POST /users/register", jsonRequest("/users/register", null).POST(body(user))) == null) {
+            return;
+        }
+
+        String form = "email=" + URLEncoder.encode(email, StandardCharsets.UTF_8) + "&password=" + PASSWORD;
+        JsonNode login = send("POST /users/login", request("/users/login", null)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form)));
+        if (login == null) {
+            return;
+        }
+        String token = login.path("token").asText();
+
+        for (int i = 0; i < iterationsPerSession && System.nanoTime() < deadlineNanos; i++) {
+            runIteration(token, "LT-" + runId + "-" + session + "-" + i);
+        }
+    }
+
+    private void runIteration(String token, String idNumber) {
+        Map<String, String> client = Map.of(
+                "idType", "CC",
+                "idNumber", idNumber,
+                "name", "Load",
+                "surname", "Client");
+        JsonNode saved = send("POST /clients/save", jsonRequest("/clients/save", token).POST(body(client)));
+        if (saved == null) {
+            return;
+        }
+        String clientId = saved.path("id").asText();
+
+        send("GET /clients/all", request("/clients/all", token).GET());
+        send("GET /clients/{idType}/{idNumber}", request("/clients/CC/" + idNumber, token).GET());
+
+        Map<String, String> update = Map.of(
+                "idType", "CC",
+                "idNumber", idNumber,
+                "name", "Load",
+                "surname", "Client updated");
+        send("PUT /clients/{clientId}", jsonRequest("/clients/" + clientId, token).PUT(body(update)));
+        send("DELETE /clients/{clientId}", request("/clients/" + clientId, token).DELETE());
+    }
+
+    /**
+     * Send a request and record it, returning the parsed body of a successful response or null
+     */
+    private JsonNode send(String endpoint, HttpRequest.Builder builder) {
+        EndpointMetrics endpointMetrics = recording ? metrics.computeIfAbsent(endpoint, EndpointMetrics::new) : null;
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            if (endpointMetrics != null) {
+                endpointMetrics.recordFailure();
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Load test interrupted", e);
+        }
+
+        boolean success = response.statusCode() / 100 == 2;
+        if (endpointMetrics != null) {
+            endpointMetrics.record(System.nanoTime() - start, success);
+        }
+        if (!success) {
+            return null;
+        }
+        try {
+            return response.body().length == 0 ? objectMapper.nullNode() : objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            throw new IllegalStateException(endpoint + " returned a body that is not JSON", e);
+        }
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private HttpRequest.Builder jsonRequest(String path, String token) {
+        return request(path, token).header("Content-Type", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher body(Object value) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(value));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize request body", e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.curootest.clientback.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.curootest.clientback.ClientbackApplication;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Entry point of the load test harness, run with {@code ./gradlew loadTest}.
+ * Boots the application on a random port against an embedded Postgres (unless
+ * loadTest.baseUrl points at a running instance), drives the client workload at the
+ * configured concurrency and fails with a non-zero exit code when a gate is broken.
+ */
+public final class LoadTestApplication {
+
+    private LoadTestApplication() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+        EmbeddedPostgres postgres = null;
+        ConfigurableApplicationContext context = null;
+        List<String> violations;
+        try {
+            String baseUrl = settings.getBaseUrl();
+            if (baseUrl.isEmpty()) {
+                postgres = startDatabase();
+                context = startApplication(postgres);
+                baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+            }
+
+            System.out.printf("Load testing %s with %d virtual users for %ds (+%ds warmup)%n",
+                    baseUrl, settings.getConcurrency(), settings.getDurationSeconds(), settings.getWarmupSeconds());
+
+            ClientWorkload workload = new ClientWorkload(baseUrl, settings.getIterationsPerSession());
+            double measuredSeconds = run(workload, settings);
+
+            LoadTestReport report = new LoadTestReport(workload.getMetrics(), measuredSeconds);
+            report.print(System.out);
+            report.write(settings.getReportDir());
+            System.out.println("Histograms and summary written to " + settings.getReportDir().toAbsolutePath());
+
+            violations = report.gateViolations(settings.getMaxP99Millis(), settings.getMaxErrorRate());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+
+        violations.forEach(violation -> System.err.println("Gate failed: " + violation));
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    private static double run(ClientWorkload workload, LoadTestSettings settings) throws Exception {
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(settings.getWarmupSeconds());
+        long deadline = measureStart + TimeUnit.SECONDS.toNanos(settings.getDurationSeconds());
+
+        ExecutorService executor = Executors.newFixedThreadPool(settings.getConcurrency());
+        try {
+            List<Future<?>> users = new ArrayList<>();
+            for (int i = 0; i < settings.getConcurrency(); i++) {
+                users.add(executor.submit(() -> workload.runUntil(deadline)));
+            }
+
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, measureStart - System.nanoTime()));
+            workload.startRecording();
+
+            for (Future<?> user : users) {
+                try {
+                    user.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A virtual user failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return (System.nanoTime() - measureStart) / 1e9;
+    }
+
+    private static EmbeddedPostgres startDatabase() throws Exception {
+        EmbeddedPostgres postgres = EmbeddedPostgres.start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute(Files.readString(Path.of("scripts/schemas.sql")));
+        }
+        return postgres;
+    }
+
+    private static ConfigurableApplicationContext startApplication(EmbeddedPostgres postgres) {
+        return new SpringApplicationBuilder(ClientbackApplication.class)
+                .profiles("dev")
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.username=postgres",
+                        "spring.datasource.password=postgres",
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        // Measure the application, not the per-user limits
+                        "rate-limit.enabled=false",
+                        "logging.level.com.curootest.clientback=WARN",
+                        "logging.level.org.springframework.security=WARN")
+                .run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.curootest.clientback.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Prints the per-endpoint summary, writes the HDR histograms and a JSON summary,
+ * and checks the configured release gates.
+ */
+final class LoadTestReport {
+
+    private final List<EndpointMetrics> endpoints;
+    private final double measuredSeconds;
+
+    LoadTestReport(Map<String, EndpointMetrics> metrics, double measuredSeconds) {
+        this.endpoints = new ArrayList<>(metrics.values());
+        this.endpoints.sort(Comparator.comparing(EndpointMetrics::getEndpoint));
+        this.measuredSeconds = measuredSeconds;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-34s %9s %8s %8s %10s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Errors", "Error %", "Req/s", "p50 ms", "p95 ms", "p99 ms", "Max ms");
+        for (EndpointMetrics endpoint : endpoints) {
+            out.printf("%-34s %9d %8d %8.2f %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.getEndpoint(),
+                    endpoint.getRequests(),
+                    endpoint.getErrors(),
+                    endpoint.getErrorRate() * 100,
+                    endpoint.getRequests() / measuredSeconds,
+                    endpoint.percentileMillis(50),
+                    endpoint.percentileMillis(95),
+                    endpoint.percentileMillis(99),
+                    endpoint.getLatencies().getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * Write one .hgrm percentile distribution per endpoint plus summary.json into the directory
+     */
+    void write(Path reportDir) throws IOException {
+        Files.createDirectories(reportDir);
+
+        List<Map<String, Object>> summary = new ArrayList<>();
+        for (EndpointMetrics endpoint : endpoints) {
+            Path histogramFile = reportDir.resolve(fileName(endpoint.getEndpoint()) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(histogramFile))) {
+                // Recorded in microseconds, reported in milliseconds
+                endpoint.getLatencies().outputPercentileDistribution(out, 1000.0);
+            }
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("endpoint", endpoint.getEndpoint());
+            entry.put("requests", endpoint.getRequests());
+            entry.put("errors", endpoint.getErrors());
+            entry.put("errorRate", endpoint.getErrorRate());
+            entry.put("throughput", endpoint.getRequests() / measuredSeconds);
+            entry.put("p50Millis", endpoint.percentileMillis(50));
+            entry.put("p95Millis", endpoint.percentileMillis(95));
+            entry.put("p99Millis", endpoint.percentileMillis(99));
+            entry.put("maxMillis", endpoint.getLatencies().getMaxValue() / 1000.0);
+            entry.put("histogram", histogramFile.getFileName().toString());
+            summary.add(entry);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("measuredSeconds", measuredSeconds);
+        report.put("endpoints", summary);
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(reportDir.resolve("summary.json").toFile(), report);
+    }
+
+    /**
+     * Describe every endpoint that breaks a gate, an empty list means the run passed
+     */
+    List<String> gateViolations(double maxP99Millis, double maxErrorRate) {
+        List<String> violations = new ArrayList<>();
+        if (endpoints.isEmpty()) {
+            violations.add("No requests were recorded");
+        }
+        for (EndpointMetrics endpoint : endpoints) {
+            if (maxP99Millis > 0 && endpoint.percentileMillis(99) > maxP99Millis) {
+                violations.add(String.format("%s p99 %.2f ms exceeds %.2f ms",
+                        endpoint.getEndpoint(), endpoint.percentileMillis(99), maxP99Millis));
+            }
+            if (endpoint.getErrorRate() > maxErrorRate) {
+                violations.add(String.format("%s error rate %.4f exceeds %.4f",
+                        endpoint.getEndpoint(), endpoint.getErrorRate(), maxErrorRate));
+            }
+        }
+        return violations;
+    }
+
+    private static String fileName(String endpoint) {
+        return endpoint.replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "");
+    }
+}
@@ -0,0 +1,88 @@
+package com.curootest.clientback.loadtest;
+
+import java.nio.file.Path;
+
+/**
+ * Load test knobs, read from "loadTest.*" system properties (passed as -PloadTest.* to Gradle)
+ */
+final class LoadTestSettings {
+
+    private static final String PREFIX = "loadTest.";
+
+    private final String baseUrl;
+    private final int concurrency;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final int iterationsPerSession;
+    private final double maxP99Millis;
+    private final double maxErrorRate;
+    private final Path reportDir;
+
+    private LoadTestSettings(String baseUrl, int concurrency, int warmupSeconds, int durationSeconds,
+            int iterationsPerSession, double maxP99Millis, double maxErrorRate, Path reportDir) {
+        this.baseUrl = baseUrl;
+        this.concurrency = concurrency;
+        this.warmupSeconds = warmupSeconds;
+        this.durationSeconds = durationSeconds;
+        this.iterationsPerSession = iterationsPerSession;
+        this.maxP99Millis = maxP99Millis;
+        this.maxErrorRate = maxErrorRate;
+        this.reportDir = reportDir;
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                System.getProperty(PREFIX + "baseUrl", ""),
+                Integer.getInteger(PREFIX + "concurrency", 16),
+                Integer.getInteger(PREFIX + "warmupSeconds", 10),
+                Integer.getInteger(PREFIX + "durationSeconds", 60),
+                Integer.getInteger(PREFIX + "iterationsPerSession", 20),
+                Double.parseDouble(System.getProperty(PREFIX + "maxP99Millis", "0")),
+                Double.parseDouble(System.getProperty(PREFIX + "maxErrorRate", "1")),
+                Path.of(System.getProperty(PREFIX + "reportDir", "build/reports/load-test")));
+    }
+
+    /**
+     * URL of an already running instance, empty to boot the application against embedded Postgres
+     */
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Client CRUD iterations each virtual user runs before registering a fresh user
+     */
+    int getIterationsPerSession() {
+        return iterationsPerSession;
+    }
+
+    /**
+     * Highest p99 latency any endpoint may reach, 0 disables the gate
+     */
+    double getMaxP99Millis() {
+        return maxP99Millis;
+    }
+
+    /**
+     * Highest error rate any endpoint may reach, 1 disables the gate
+     */
+    double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    Path getReportDir() {
+        return reportDir;
+    }
+}
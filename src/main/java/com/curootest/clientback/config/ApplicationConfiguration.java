@@ -2,6 +2,7 @@ package com.curootest.clientback.config;
 
 import com.curootest.clientback.persistence.UserRepository;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -15,9 +16,12 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 @Configuration
 public class ApplicationConfiguration {
     private final UserRepository userRepository;
+    private final int bcryptStrength;
 
-    public ApplicationConfiguration(UserRepository userRepository) {
+    public ApplicationConfiguration(UserRepository userRepository,
+            @Value("${security.password.bcrypt-strength:10}") int bcryptStrength) {
         this.userRepository = userRepository;
+        this.bcryptStrength = bcryptStrength;
     }
 
     @Bean
@@ -29,7 +33,8 @@ public class ApplicationConfiguration {
 
     @Bean
     BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // Existing hashes keep verifying after a change, BCrypt reads the cost from the hash itself
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -15,6 +15,10 @@ public class CustomUserDetails implements UserDetails {
         this.userDTO = userDTO;
     }
 
+    public Integer getUserId() {
+        return userDTO.getId() != null ? Integer.valueOf(userDTO.getId()) : null;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return Collections.emptyList();
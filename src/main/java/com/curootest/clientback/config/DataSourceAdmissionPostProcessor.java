@@ -0,0 +1,36 @@
+package com.curootest.clientback.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Puts a {@link BoundedDataSource} in front of the application DataSource when admission control is enabled,
+ * which it is by default whenever virtual threads are
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.admission.enabled", havingValue = "true")
+public class DataSourceAdmissionPostProcessor implements BeanPostProcessor {
+
+    private final int maxConcurrent;
+    private final long timeoutMillis;
+
+    public DataSourceAdmissionPostProcessor(
+            @Value("${datasource.admission.max-concurrent}") int maxConcurrent,
+            @Value("${datasource.admission.timeout-ms}") long timeoutMillis) {
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof DataSource dataSource && !(bean instanceof BoundedDataSource)) {
+            return new BoundedDataSource(dataSource, maxConcurrent, timeoutMillis);
+        }
+        return bean;
+    }
+}
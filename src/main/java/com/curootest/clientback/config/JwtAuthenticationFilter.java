@@ -1,8 +1,12 @@
 package com.curootest.clientback.config;
 
+import com.curootest.clientback.domain.dto.TokenClaims;
 import com.curootest.clientback.domain.service.JwtService;
 
 import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,14 +29,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final JwtPrincipalCache principalCache;
+    private final TokenDenylist tokenDenylist;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter principalCacheHits;
+    private final Counter principalCacheMisses;
+    private final Timer validTokenParses;
+    private final Timer invalidTokenParses;
 
     public JwtAuthenticationFilter(
             JwtService jwtService,
             UserDetailsService userDetailsService,
-            HandlerExceptionResolver handlerExceptionResolver) {
+            JwtPrincipalCache principalCache,
+            TokenDenylist tokenDenylist,
+            HandlerExceptionResolver handlerExceptionResolver,
+            MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
+        this.tokenDenylist = tokenDenylist;
         this.handlerExceptionResolver = handlerExceptionResolver;
+        this.meterRegistry = meterRegistry;
+        this.principalCacheHits = Counter.builder("jwt.principal.lookups")
+                .tag("result", "hit").register(meterRegistry);
+        this.principalCacheMisses = Counter.builder("jwt.principal.lookups")
+                .tag("result", "miss").register(meterRegistry);
+        this.validTokenParses = Timer.builder("jwt.parse")
+                .tag("outcome", "valid").register(meterRegistry);
+        this.invalidTokenParses = Timer.builder("jwt.parse")
+                .tag("outcome", "invalid").register(meterRegistry);
     }
 
     @Override
@@ -61,14 +87,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             final String jwt = authHeader.substring(7);
-            final String userEmail = jwtService.extractUsername(jwt);
 
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
-            if (userEmail != null && authentication == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            if (authentication == null) {
+                // A cache hit means the token was already verified, so skip parsing and the user lookup;
+                // revoking a token or a user drops its cached principals
+                UserDetails userDetails = principalCache.get(jwt);
+                if (userDetails == null) {
+                    principalCacheMisses.increment();
+                    userDetails = verifyToken(jwt);
+                } else {
+                    principalCacheHits.increment();
+                }
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -84,4 +117,43 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             handlerExceptionResolver.resolveException(request, response, null, exception);
         }
     }
-}
\ No newline at end of file
+
+    private UserDetails verifyToken(String jwt) {
+        // Signature and expiration are verified by this single parse
+        final TokenClaims claims = parseToken(jwt);
+        if (claims.getSubject() == null) {
+            return null;
+        }
+        // Refresh tokens can only be exchanged for new tokens, and revoked tokens are denied in memory
+        if (claims.getType() != TokenClaims.Type.ACCESS || tokenDenylist.isRevoked(claims)) {
+            return null;
+        }
+
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(claims.getSubject());
+        if (!claims.getSubject().equals(userDetails.getUsername())) {
+            return null;
+        }
+        // The email may have been handed to another account since the token was issued
+        if (claims.getUserId() != null && userDetails instanceof CustomUserDetails customUserDetails
+                && !claims.getUserId().equals(customUserDetails.getUserId())) {
+            return null;
+        }
+
+        if (claims.getExpiration() != null) {
+            principalCache.put(jwt, userDetails, claims.getExpiration());
+        }
+        return userDetails;
+    }
+
+    private TokenClaims parseToken(String jwt) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean valid = false;
+        try {
+            TokenClaims claims = jwtService.validateToken(jwt);
+            valid = true;
+            return claims;
+        } finally {
+            sample.stop(valid ? validTokenParses : invalidTokenParses);
+        }
+    }
+}
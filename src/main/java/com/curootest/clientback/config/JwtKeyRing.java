@@ -0,0 +1,276 @@
+package com.curootest.clientback.config;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The ES256 (P-256) key pairs tokens are signed with, each identified by its key ID (kid).
+ * Keys are published in the JWKS for the activation delay before they start signing, so verifiers with a
+ * cached key set learn them first, and keep verifying after a newer key takes over.
+ * <p>
+ * With a PKCS#12 keystore every instance shares the same keys: each entry alias is a key ID, a key is rotated in
+ * by adding an entry (its certificate start date starts the activation delay) and retired by removing it once the tokens
+ * it signed have expired. The file is reloaded when it changes.
+ * Without a keystore, keys are generated in memory and rotated on a schedule; they are lost on restart and
+ * differ per instance, so this is only suitable for development and single instances.
+ */
+@Component
+public class JwtKeyRing {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final int P256_FIELD_BYTES = 32;
+
+    /**
+     * A key pair with the time it starts signing
+     */
+    public static final class SigningKey {
+        private final String keyId;
+        private final PrivateKey privateKey;
+        private final ECPublicKey publicKey;
+        private final Instant activatesAt;
+
+        private SigningKey(String keyId, PrivateKey privateKey, ECPublicKey publicKey, Instant activatesAt) {
+            this.keyId = keyId;
+            this.privateKey = privateKey;
+            this.publicKey = publicKey;
+            this.activatesAt = activatesAt;
+        }
+
+        public String getKeyId() {
+            return keyId;
+        }
+
+        public PrivateKey getPrivateKey() {
+            return privateKey;
+        }
+
+        public ECPublicKey getPublicKey() {
+            return publicKey;
+        }
+
+        public Instant getActivatesAt() {
+            return activatesAt;
+        }
+    }
+
+    private final Path keystore;
+    private final char[] keystorePassword;
+    private final Duration rotationInterval;
+    private final Duration activationDelay;
+    private final Duration retention;
+
+    // Immutable snapshot, oldest key first, replaced as a whole on rotation
+    private volatile KeySet keySet = new KeySet(List.of());
+    private long keystoreLastModified;
+
+    public JwtKeyRing(
+            @Value("${security.jwt.keys.keystore:}") String keystore,
+            @Value("${security.jwt.keys.keystore-password:}") String keystorePassword,
+            @Value("${security.jwt.keys.rotation-interval:7d}") Duration rotationInterval,
+            @Value("${security.jwt.keys.activation-delay:10m}") Duration activationDelay,
+            @Value("${security.jwt.refresh-token.expire-length:1209600000}") long retentionMillis,
+            MeterRegistry meterRegistry) {
+        this.keystore = keystore.isBlank() ? null : Path.of(keystore);
+        this.keystorePassword = keystorePassword.toCharArray();
+        this.rotationInterval = rotationInterval;
+        this.activationDelay = activationDelay;
+        // A retired key must outlive every token it signed
+        this.retention = Duration.ofMillis(retentionMillis);
+        if (this.keystore != null) {
+            loadKeystore();
+        } else {
+            logger.warn("No JWT keystore configured, signing with in-memory keys that are lost on restart");
+            // Nobody can hold tokens signed by a key that did not exist, so the first one signs right away
+            keySet = new KeySet(List.of(generateKey(Instant.now())));
+        }
+        Gauge.builder("jwt.signing.keys", this, ring -> ring.keySet.keys.size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * The newest key that has passed its activation delay, or the oldest key if none has yet
+     */
+    public SigningKey signingKey() {
+        List<SigningKey> keys = keySet.keys;
+        Instant now = Instant.now();
+        for (int i = keys.size() - 1; i > 0; i--) {
+            if (!keys.get(i).activatesAt.isAfter(now)) {
+                return keys.get(i);
+            }
+        }
+        return keys.get(0);
+    }
+
+    /**
+     * Get the public key for a key ID, or null if it is unknown or no longer published
+     */
+    public PublicKey verificationKey(String keyId) {
+        SigningKey key = keyId != null ? keySet.byId.get(keyId) : null;
+        return key != null ? key.publicKey : null;
+    }
+
+    /**
+     * The published public keys as a JWK Set (RFC 7517)
+     */
+    public Map<String, Object> jwks() {
+        return keySet.jwks;
+    }
+
+    /**
+     * Reload the keystore if it changed, or generate and retire in-memory keys
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.keys.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        if (keystore != null) {
+            loadKeystore();
+            return;
+        }
+
+        Instant now = Instant.now();
+        List<SigningKey> keys = new ArrayList<>(keySet.keys);
+        SigningKey newest = keys.get(keys.size() - 1);
+        if (!newest.activatesAt.plus(rotationInterval).isAfter(now)) {
+            keys.add(generateKey(now.plus(activationDelay)));
+        }
+        // A key is retired once the next one activates, and dropped when its last tokens have expired
+        while (keys.size() > 1 && !keys.get(1).activatesAt.plus(retention).isAfter(now)) {
+            keys.remove(0);
+        }
+        if (!keys.equals(keySet.keys)) {
+            keySet = new KeySet(keys);
+            logger.info("Rotated JWT signing keys, {} published, signing with {}",
+                    keys.size(), signingKey().keyId);
+        }
+    }
+
+    private synchronized void loadKeystore() {
+        try {
+            long lastModified = Files.getLastModifiedTime(keystore).toMillis();
+            if (lastModified == keystoreLastModified) {
+                return;
+            }
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            try (InputStream input = Files.newInputStream(keystore)) {
+                store.load(input, keystorePassword);
+            }
+
+            List<SigningKey> keys = new ArrayList<>();
+            for (String alias : Collections.list(store.aliases())) {
+                if (!store.isKeyEntry(alias)) {
+                    continue;
+                }
+                Certificate certificate = store.getCertificate(alias);
+                if (!(certificate instanceof X509Certificate x509Certificate)
+                        || !(certificate.getPublicKey() instanceof ECPublicKey publicKey)
+                        || publicKey.getParams().getCurve().getField().getFieldSize() != P256_FIELD_BYTES * 8) {
+                    logger.warn("Skipping JWT keystore entry {}, it is not a P-256 key pair", alias);
+                    continue;
+                }
+                PrivateKey privateKey = (PrivateKey) store.getKey(alias, keystorePassword);
+                // The certificate start date is persisted by every tool, unlike the entry creation date
+                Instant validFrom = x509Certificate.getNotBefore().toInstant();
+                keys.add(new SigningKey(alias, privateKey, publicKey, validFrom.plus(activationDelay)));
+            }
+            if (keys.isEmpty()) {
+                throw new IllegalStateException("JWT keystore " + keystore + " has no P-256 key pair");
+            }
+            keys.sort(Comparator.comparing(SigningKey::getActivatesAt));
+
+            keySet = new KeySet(keys);
+            keystoreLastModified = lastModified;
+            logger.info("Loaded {} JWT signing keys from {}, signing with {}",
+                    keys.size(), keystore, signingKey().keyId);
+        } catch (Exception e) {
+            if (keySet.keys.isEmpty()) {
+                throw new IllegalStateException("Failed to load the JWT keystore " + keystore, e);
+            }
+            // Keep signing with the keys already loaded, e.g. while the file is being replaced
+            logger.error("Failed to reload the JWT keystore {}: {}", keystore, e.getMessage());
+        }
+    }
+
+    private static SigningKey generateKey(Instant activatesAt) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair keyPair = generator.generateKeyPair();
+            return new SigningKey(UUID.randomUUID().toString(), keyPair.getPrivate(),
+                    (ECPublicKey) keyPair.getPublic(), activatesAt);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("P-256 keys are not available", e);
+        }
+    }
+
+    private static Map<String, Object> toJwk(SigningKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("x", base64Url(key.publicKey.getW().getAffineX()));
+        jwk.put("y", base64Url(key.publicKey.getW().getAffineY()));
+        jwk.put("use", "sig");
+        jwk.put("alg", "ES256");
+        jwk.put("kid", key.keyId);
+        return jwk;
+    }
+
+    /**
+     * Coordinates are encoded as unsigned big-endian integers of exactly the field size
+     */
+    private static String base64Url(BigInteger coordinate) {
+        byte[] bytes = coordinate.toByteArray();
+        byte[] padded = new byte[P256_FIELD_BYTES];
+        int length = Math.min(bytes.length, P256_FIELD_BYTES);
+        System.arraycopy(bytes, bytes.length - length, padded, P256_FIELD_BYTES - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(padded);
+    }
+
+    private static final class KeySet {
+        private final List<SigningKey> keys;
+        private final Map<String, SigningKey> byId;
+        private final Map<String, Object> jwks;
+
+        private KeySet(List<SigningKey> keys) {
+            this.keys = List.copyOf(keys);
+            Map<String, SigningKey> byId = new LinkedHashMap<>();
+            List<Map<String, Object>> publicKeys = new ArrayList<>();
+            for (SigningKey key : keys) {
+                byId.put(key.keyId, key);
+                publicKeys.add(toJwk(key));
+            }
+            this.byId = Map.copyOf(byId);
+            this.jwks = Map.of("keys", List.copyOf(publicKeys));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.curootest.clientback.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded, TTL-based cache of principals resolved from verified JWTs.
+ * Entries are keyed by the SHA-256 hash of the token and never outlive the token itself,
+ * so a cache hit can skip both token parsing and the user lookup.
+ */
+@Component
+public class JwtPrincipalCache {
+
+    private static final String CACHE_NAME = "jwt.principals";
+
+    private final Cache<String, CachedPrincipal> cache;
+
+    public JwtPrincipalCache(
+            @Value("${security.jwt.principal-cache.max-size:10000}") long maxSize,
+            @Value("${security.jwt.principal-cache.ttl:5m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenBoundExpiry(ttl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Get the cached principal for a token, or null if the token has not been verified recently
+     */
+    public UserDetails get(String token) {
+        CachedPrincipal cached = cache.getIfPresent(hash(token));
+        return cached != null ? cached.userDetails : null;
+    }
+
+    /**
+     * Cache the principal of a verified token until the earlier of the TTL and the token expiration
+     */
+    public void put(String token, UserDetails userDetails, Instant expiration) {
+        cache.put(hash(token), new CachedPrincipal(userDetails, expiration.toEpochMilli()));
+    }
+
+    /**
+     * Drop the cached principal of a single token, e.g. after it has been revoked
+     */
+    public void invalidate(String token) {
+        cache.invalidate(hash(token));
+    }
+
+    /**
+     * Drop every cached principal of a user, e.g. after the user has been updated
+     */
+    public void invalidateUser(String username) {
+        cache.asMap().values().removeIf(cached -> cached.userDetails.getUsername().equals(username));
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class CachedPrincipal {
+        private final UserDetails userDetails;
+        private final long expiresAtMillis;
+
+        private CachedPrincipal(UserDetails userDetails, long expiresAtMillis) {
+            this.userDetails = userDetails;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final class TokenBoundExpiry implements Expiry<String, CachedPrincipal> {
+        private final long ttlNanos;
+
+        private TokenBoundExpiry(Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, CachedPrincipal value, long currentTime) {
+            long untilTokenExpiry = Duration
+                    .ofMillis(Math.max(0, value.expiresAtMillis - System.currentTimeMillis()))
+                    .toNanos();
+            return Math.min(ttlNanos, untilTokenExpiry);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.curootest.clientback.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every domain repository call and every client mapping, tagged with the endpoint
+ * that triggered it and the outcome, so slow requests can be traced to the data access layer.
+ * Methods returning a Stream are timed until the stream is opened, not until it is consumed.
+ */
+@Aspect
+@Component
+public class PersistenceMetricsAspect {
+
+    private static final String REPOSITORY_METRIC = "repository.calls";
+    private static final String MAPPER_METRIC = "mapper.conversions";
+
+    private final MeterRegistry meterRegistry;
+    // Built once, each call only supplies its tags to look up the registered timer
+    private final Meter.MeterProvider<Timer> repositoryTimers;
+    private final Meter.MeterProvider<Timer> mapperTimers;
+
+    public PersistenceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.repositoryTimers = Timer.builder(REPOSITORY_METRIC).withRegistry(meterRegistry);
+        this.mapperTimers = Timer.builder(MAPPER_METRIC).withRegistry(meterRegistry);
+    }
+
+    // The sharded repository only delegates, timing it as well would count every call twice
+    @Around("(execution(* com.curootest.clientback.domain.repository.ClientDTORepository.*(..))"
+            + " || execution(* com.curootest.clientback.domain.repository.UserDTORepository.*(..)))"
+            + " && !within(com.curootest.clientback.persistence.shard..*)")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(REPOSITORY_METRIC, repositoryTimers, "repository", joinPoint);
+    }
+
+    @Around("execution(* com.curootest.clientback.persistence.mapper.ClientMapper.*(..))")
+    public Object timeMapper(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(MAPPER_METRIC, mapperTimers, "mapper", joinPoint);
+    }
+
+    private Object time(String metric, Meter.MeterProvider<Timer> timers, String typeTag,
+            ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            exception = throwable.getClass().getSimpleName();
+            throw throwable;
+        } finally {
+            long elapsedNanos = sample.stop(timers.withTags(
+                    typeTag, joinPoint.getSignature().getDeclaringType().getSimpleName(),
+                    "method", joinPoint.getSignature().getName(),
+                    "endpoint", currentEndpoint(),
+                    "outcome", "none".equals(exception) ? "success" : "error",
+                    "exception", exception));
+            recordForRequest(metric, elapsedNanos);
+        }
+    }
+
+    private static void recordForRequest(String metric, long elapsedNanos) {
+        RequestTimings timings = RequestTimings.current();
+        if (timings == null) {
+            return;
+        }
+        if (REPOSITORY_METRIC.equals(metric)) {
+            timings.repositoryNanos.add(elapsedNanos);
+            timings.repositoryCalls.increment();
+        } else {
+            timings.mapperNanos.add(elapsedNanos);
+        }
+    }
+
+    /**
+     * The matched route of the current request, e.g. "GET /clients/{clientId}".
+     * Calls made before handler mapping (e.g. from the JWT filter) are tagged UNKNOWN,
+     * and calls outside of a request are tagged none.
+     */
+    private static String currentEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return "none";
+        }
+        Object pattern = servletAttributes.getAttribute(
+                HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (pattern == null) {
+            return "UNKNOWN";
+        }
+        return servletAttributes.getRequest().getMethod() + " " + pattern;
+    }
+}
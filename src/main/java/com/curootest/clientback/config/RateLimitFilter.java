@@ -0,0 +1,132 @@
+package com.curootest.clientback.config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.common.lang.NonNull;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Charges every authenticated request to the user's bucket, and login and registration
+ * to the client IP's bucket, weighting each endpoint by its configured cost.
+ * Runs right after JwtAuthenticationFilter so the user is already known.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> ANONYMOUS_PATHS = Set.of(
+            "/users/login", "/users/register", "/users/token/refresh", "/users/logout");
+
+    private final RateLimiter rateLimiter;
+    private final boolean enabled;
+    private final List<EndpointCost> costs;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitFilter(
+            RateLimiter rateLimiter,
+            @Value("${rate-limit.enabled:true}") boolean enabled,
+            @Value("${rate-limit.costs:}") String costs) {
+        this.rateLimiter = rateLimiter;
+        this.enabled = enabled;
+        this.costs = parseCosts(costs);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        if (!enabled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        final String path = request.getServletPath();
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        long waitNanos;
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            String user = authentication.getPrincipal() instanceof CustomUserDetails userDetails
+                    ? String.valueOf(userDetails.getUserId())
+                    : authentication.getName();
+            waitNanos = rateLimiter.tryAcquire(RateLimiter.Policy.USER, user, costOf(request.getMethod(), path));
+        } else if (ANONYMOUS_PATHS.contains(path)) {
+            // Behind the proxy this is the forwarded client address, see server.forward-headers-strategy
+            waitNanos = rateLimiter.tryAcquire(RateLimiter.Policy.ANONYMOUS, request.getRemoteAddr(),
+                    costOf(request.getMethod(), path));
+        } else {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write("Too many requests, please retry after " + retryAfterSeconds + " seconds.");
+    }
+
+    private int costOf(String method, String path) {
+        for (EndpointCost cost : costs) {
+            if (cost.method.equalsIgnoreCase(method) && pathMatcher.match(cost.pattern, path)) {
+                return cost.cost;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Parse "METHOD /path/pattern=cost" entries separated by commas, e.g. "POST /users/login=5,GET /clients/*=2"
+     */
+    private static List<EndpointCost> parseCosts(String costs) {
+        List<EndpointCost> endpointCosts = new ArrayList<>();
+        for (String entry : costs.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] endpointAndCost = entry.trim().split("=");
+            String[] methodAndPattern = endpointAndCost[0].trim().split("\\s+");
+            if (endpointAndCost.length != 2 || methodAndPattern.length != 2) {
+                throw new IllegalArgumentException("Invalid rate-limit.costs entry: " + entry);
+            }
+            endpointCosts.add(new EndpointCost(methodAndPattern[0], methodAndPattern[1],
+                    Integer.parseInt(endpointAndCost[1].trim())));
+        }
+        return endpointCosts;
+    }
+
+    private static final class EndpointCost {
+        private final String method;
+        private final String pattern;
+        private final int cost;
+
+        private EndpointCost(String method, String pattern, int cost) {
+            this.method = method;
+            this.pattern = pattern;
+            this.cost = cost;
+        }
+    }
+}
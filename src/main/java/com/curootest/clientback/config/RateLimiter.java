@@ -0,0 +1,113 @@
+package com.curootest.clientback.config;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Token buckets keyed by authenticated user or by client IP.
+ * Each bucket is a single AtomicLong updated with compare-and-set (the GCRA form of a token bucket),
+ * and buckets live in a bounded Caffeine map, so acquiring never takes a lock.
+ */
+@Component
+public class RateLimiter {
+
+    /**
+     * Who a bucket belongs to; each kind has its own capacity and refill rate
+     */
+    public enum Policy {
+        USER, ANONYMOUS
+    }
+
+    private static final String METRIC_NAME = "ratelimit.requests";
+
+    private final long origin = System.nanoTime();
+    private final Limit userLimit;
+    private final Limit anonymousLimit;
+    private final Cache<String, Bucket> buckets;
+    private final Counter[][] counters = new Counter[Policy.values().length][2];
+
+    public RateLimiter(
+            @Value("${rate-limit.user.capacity:100}") int userCapacity,
+            @Value("${rate-limit.user.refill-per-second:20}") double userRefillPerSecond,
+            @Value("${rate-limit.anonymous.capacity:50}") int anonymousCapacity,
+            @Value("${rate-limit.anonymous.refill-per-second:10}") double anonymousRefillPerSecond,
+            @Value("${rate-limit.max-tracked-keys:100000}") long maxTrackedKeys,
+            MeterRegistry meterRegistry) {
+        this.userLimit = new Limit(userCapacity, userRefillPerSecond);
+        this.anonymousLimit = new Limit(anonymousCapacity, anonymousRefillPerSecond);
+
+        // An idle bucket is full again after this long, so dropping it loses nothing
+        Duration refillTime = Duration.ofNanos(Math.max(userLimit.refillNanos(), anonymousLimit.refillNanos()));
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .expireAfterAccess(refillTime)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "ratelimit.buckets");
+
+        for (Policy policy : Policy.values()) {
+            String policyName = policy.name().toLowerCase();
+            counters[policy.ordinal()][0] = Counter.builder(METRIC_NAME)
+                    .tag("policy", policyName).tag("result", "allowed").register(meterRegistry);
+            counters[policy.ordinal()][1] = Counter.builder(METRIC_NAME)
+                    .tag("policy", policyName).tag("result", "rejected").register(meterRegistry);
+        }
+    }
+
+    /**
+     * Take cost tokens from the bucket of the key
+     *
+     * @return 0 if the tokens were taken, otherwise the nanoseconds until enough tokens are available
+     */
+    public long tryAcquire(Policy policy, String key, int cost) {
+        Limit limit = policy == Policy.USER ? userLimit : anonymousLimit;
+        Bucket bucket = buckets.get(policy.name() + ':' + key, k -> new Bucket());
+        long waitNanos = bucket.tryAcquire(limit, Math.min(cost, limit.capacity), System.nanoTime() - origin);
+        counters[policy.ordinal()][waitNanos == 0 ? 0 : 1].increment();
+        return waitNanos;
+    }
+
+    private static final class Limit {
+        private final int capacity;
+        private final long intervalNanos;
+
+        private Limit(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+        }
+
+        private long refillNanos() {
+            return capacity * intervalNanos;
+        }
+    }
+
+    private static final class Bucket {
+        // Time at which the bucket would be full again, tokens are implied by its distance from now
+        private final AtomicLong theoreticalArrival = new AtomicLong();
+
+        private long tryAcquire(Limit limit, int cost, long now) {
+            while (true) {
+                long current = theoreticalArrival.get();
+                long next = Math.max(current, now) + cost * limit.intervalNanos;
+                long excess = next - now - limit.refillNanos();
+                if (excess > 0) {
+                    return excess;
+                }
+                if (theoreticalArrival.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
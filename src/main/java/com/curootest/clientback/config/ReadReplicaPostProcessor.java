@@ -0,0 +1,126 @@
+package com.curootest.clientback.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Routes read-only transactions to the replicas when they are enabled.
+ * The application DataSource is wrapped in a {@link LazyConnectionDataSourceProxy}, which only fetches the physical
+ * connection on the first statement, once {@code @Transactional(readOnly = true)} has marked it read-only,
+ * and then takes it from the {@link ReplicaDataSource} instead of the primary pool.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaPostProcessor implements BeanPostProcessor, Ordered, DisposableBean {
+
+    private final List<String> urls;
+    private final String username;
+    private final String password;
+    private final int poolSize;
+    private final long connectionTimeoutMillis;
+    private final ReplicaDataSource.Selection selection;
+    private final Duration maxLag;
+    private final Duration lagCheckInterval;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private ReplicaDataSource replicaDataSource;
+
+    public ReadReplicaPostProcessor(
+            @Value("${datasource.replicas.urls}") String urls,
+            @Value("${datasource.replicas.username}") String username,
+            @Value("${datasource.replicas.password}") String password,
+            @Value("${datasource.replicas.pool-size}") int poolSize,
+            @Value("${datasource.replicas.connection-timeout-ms}") long connectionTimeoutMillis,
+            @Value("${datasource.replicas.selection}") String selection,
+            @Value("${datasource.replicas.max-lag}") Duration maxLag,
+            @Value("${datasource.replicas.lag-check-interval}") Duration lagCheckInterval,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.urls = Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+        if (this.urls.isEmpty()) {
+            throw new IllegalStateException("datasource.replicas.urls must list at least one replica");
+        }
+        this.username = username;
+        this.password = password;
+        this.poolSize = poolSize;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.selection = ReplicaDataSource.Selection.valueOf(
+                selection.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        this.maxLag = maxLag;
+        this.lagCheckInterval = lagCheckInterval;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Before admission control, so its permits bound the replica connections as well
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!(bean instanceof DataSource primary) || replicaDataSource != null) {
+            return bean;
+        }
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        List<HikariDataSource> pools = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            pools.add(createPool("replica-" + (i + 1), urls.get(i), registry));
+        }
+        replicaDataSource = new ReplicaDataSource(primary, pools, selection, maxLag, lagCheckInterval);
+        if (registry != null) {
+            replicaDataSource.bindTo(registry);
+        }
+
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+        routing.setReadOnlyDataSource(replicaDataSource);
+        return routing;
+    }
+
+    @Override
+    public void destroy() {
+        if (replicaDataSource != null) {
+            replicaDataSource.close();
+        }
+    }
+
+    private HikariDataSource createPool(String name, String url, MeterRegistry registry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setConnectionTimeout(connectionTimeoutMillis);
+        config.setReadOnly(true);
+        // Start without connecting, an unreachable replica must not keep the application from starting
+        config.setInitializationFailTimeout(-1);
+        if (registry != null) {
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        }
+        return new HikariDataSource(config);
+    }
+}
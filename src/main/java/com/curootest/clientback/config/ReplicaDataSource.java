@@ -0,0 +1,215 @@
+package com.curootest.clientback.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * DataSource for read-only work, spreading connections over the replica pools and falling back to the primary
+ * when no replica is reachable, streaming from the primary and within the allowed replication lag. The lag of every replica is checked in
+ * the background, so choosing a replica costs no round trip.
+ */
+public class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    private static final String PRIMARY_LSN_QUERY = "SELECT pg_current_wal_lsn()::text";
+
+    // A standby only counts while it streams from the primary; the WAL receiver status needs pg_read_all_stats.
+    // One that has replayed the primary's current WAL position is not lagging, however old its last transaction
+    // is, otherwise it lags by the age of the last replayed transaction. Without the primary's position, only
+    // the WAL received so far is compared.
+    private static final String LAG_QUERY = """
+            SELECT NOT pg_is_in_recovery()
+                    OR EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming'),
+                CASE
+                    WHEN NOT pg_is_in_recovery() THEN 0
+                    WHEN pg_wal_lsn_diff(coalesce(?::pg_lsn, pg_last_wal_receive_lsn()),
+                            pg_last_wal_replay_lsn()) <= 0 THEN 0
+                    ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+                END""";
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_BUSY
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Selection selection;
+    private final double maxLagSeconds;
+    private final int checkTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService lagChecker;
+    private Counter fallbacks;
+
+    public ReplicaDataSource(DataSource primary, List<HikariDataSource> pools, Selection selection,
+            Duration maxLag, Duration checkInterval) {
+        this.primary = primary;
+        this.replicas = pools.stream().map(Replica::new).toList();
+        this.selection = selection;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.checkTimeoutSeconds = (int) Math.max(1, checkInterval.toSeconds());
+        // Replicas join the rotation after their first check, until then reads go to the primary
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replica-lag-check").daemon().factory());
+        this.lagChecker.scheduleWithFixedDelay(this::checkReplicas, 0, checkInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void bindTo(MeterRegistry meterRegistry) {
+        this.fallbacks = Counter.builder("datasource.replica.fallbacks")
+                .description("Read-only connections served by the primary because no replica was available")
+                .register(meterRegistry);
+        for (Replica replica : replicas) {
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("replica", replica.pool.getPoolName())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        for (Replica replica : candidates()) {
+            try {
+                return replica.pool.getConnection();
+            } catch (SQLException e) {
+                markDown(replica, e.getMessage());
+            }
+        }
+        if (fallbacks != null) {
+            fallbacks.increment();
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+
+    @Override
+    public void close() {
+        lagChecker.shutdownNow();
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    /**
+     * Replicas to try in order, only those reachable and within the allowed lag
+     */
+    private List<Replica> candidates() {
+        List<Replica> available = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.up && replica.lagSeconds <= maxLagSeconds) {
+                available.add(replica);
+            }
+        }
+        if (available.size() < 2) {
+            return available;
+        }
+        if (selection == Selection.LEAST_BUSY) {
+            available.sort(Comparator.comparingInt(Replica::busyConnections));
+            return available;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), available.size());
+        List<Replica> rotated = new ArrayList<>(available.subList(start, available.size()));
+        rotated.addAll(available.subList(0, start));
+        return rotated;
+    }
+
+    private void checkReplicas() {
+        String primaryLsn = primaryLsn();
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection();
+                    PreparedStatement statement = connection.prepareStatement(LAG_QUERY)) {
+                statement.setQueryTimeout(checkTimeoutSeconds);
+                statement.setString(1, primaryLsn);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    if (!resultSet.getBoolean(1)) {
+                        // Whatever it replayed may be arbitrarily old once the standby lost the primary
+                        markDown(replica, "not streaming from the primary");
+                        continue;
+                    }
+                    double lag = resultSet.getDouble(2);
+                    // No transaction replayed yet, the standby is still catching up
+                    replica.lagSeconds = resultSet.wasNull() ? Double.POSITIVE_INFINITY : lag;
+                }
+                if (!replica.up) {
+                    logger.info("Replica {} is reachable, lag {}s", replica.pool.getPoolName(), replica.lagSeconds);
+                }
+                replica.up = true;
+            } catch (SQLException e) {
+                markDown(replica, e.getMessage());
+            } catch (RuntimeException e) {
+                // Never let an unexpected error cancel the periodic check
+                markDown(replica, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Current WAL position of the primary, or null if it cannot be read
+     */
+    private String primaryLsn() {
+        try (Connection connection = primary.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(checkTimeoutSeconds);
+            try (ResultSet resultSet = statement.executeQuery(PRIMARY_LSN_QUERY)) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        } catch (SQLException e) {
+            logger.debug("Could not read the WAL position of the primary: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void markDown(Replica replica, String cause) {
+        if (replica.up) {
+            logger.warn("Replica {} is unavailable, reading from the other replicas or the primary: {}",
+                    replica.pool.getPoolName(), cause);
+        }
+        replica.up = false;
+        replica.lagSeconds = Double.NaN;
+    }
+
+    private static final class Replica {
+        private final HikariDataSource pool;
+        private volatile boolean up;
+        private volatile double lagSeconds = Double.NaN;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        private int busyConnections() {
+            HikariPoolMXBean poolBean = pool.getHikariPoolMXBean();
+            return poolBean != null ? poolBean.getActiveConnections() + poolBean.getThreadsAwaitingConnection() : 0;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.curootest.clientback.config;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.common.lang.NonNull;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Logs a single structured line per request with its route, status, user and timings,
+ * replacing scattered per-step log statements. Failed and slow requests are always logged,
+ * successful ones are sampled. Runs inside the security chain, before JwtAuthenticationFilter,
+ * so the authenticated user is still known when the request completes.
+ */
+@Component
+public class RequestSummaryFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestSummaryFilter.class);
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+
+    public RequestSummaryFilter(
+            @Value("${logging.request-summary.enabled:true}") boolean enabled,
+            @Value("${logging.request-summary.sample-rate:1.0}") double sampleRate,
+            @Value("${logging.request-summary.slow-threshold-ms:500}") long slowThresholdMs) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        if (!enabled || !logger.isInfoEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RequestTimings timings = new RequestTimings();
+        request.setAttribute(RequestTimings.ATTRIBUTE, timings);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            if (status >= 400 || elapsedNanos >= slowThresholdNanos || sampled()) {
+                log(request, status, elapsedNanos, timings);
+            }
+        }
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private void log(HttpServletRequest request, int status, long elapsedNanos, RequestTimings timings) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : request.getServletPath();
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        long repositoryMs = TimeUnit.NANOSECONDS.toMillis(timings.repositoryNanos.sum());
+        long repositoryCalls = timings.repositoryCalls.sum();
+        long mapperMs = TimeUnit.NANOSECONDS.toMillis(timings.mapperNanos.sum());
+
+        logger.atInfo()
+                .addKeyValue("http.request.method", request.getMethod())
+                .addKeyValue("http.route", route)
+                .addKeyValue("http.response.status_code", status)
+                .addKeyValue("duration_ms", durationMs)
+                .addKeyValue("repository_ms", repositoryMs)
+                .addKeyValue("repository_calls", repositoryCalls)
+                .addKeyValue("mapper_ms", mapperMs)
+                .addKeyValue("user.id", currentUserId())
+                .log("{} {} {} in {}ms (repository {}ms in {} calls, mapping {}ms)",
+                        request.getMethod(), route, status, durationMs, repositoryMs, repositoryCalls, mapperMs);
+    }
+
+    private static Integer currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof CustomUserDetails userDetails
+                ? userDetails.getUserId()
+                : null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.curootest.clientback.config;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Time spent in repositories and mappers while handling one request, summed up for the request summary log line
+ */
+final class RequestTimings {
+
+    static final String ATTRIBUTE = RequestTimings.class.getName();
+
+    final LongAdder repositoryNanos = new LongAdder();
+    final LongAdder repositoryCalls = new LongAdder();
+    final LongAdder mapperNanos = new LongAdder();
+
+    /**
+     * Get the timings of the current request, or null outside of a summarized request
+     */
+    static RequestTimings current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                ? (RequestTimings) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                : null;
+    }
+}
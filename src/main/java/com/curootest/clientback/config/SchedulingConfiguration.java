@@ -0,0 +1,12 @@
+package com.curootest.clientback.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables background jobs such as the client event relay
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
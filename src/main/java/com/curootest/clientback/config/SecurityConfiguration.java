@@ -13,24 +13,39 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import jakarta.servlet.DispatcherType;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfiguration {
     private final AuthenticationProvider authenticationProvider;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final RequestSummaryFilter requestSummaryFilter;
 
     @Value("${CORS_ALLOWED_ORIGINS:http://localhost:4200}")
     private String allowedOrigins;
 
+    // Separate actuator port, -1 when the actuator shares the application port
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     public SecurityConfiguration(
             JwtAuthenticationFilter jwtAuthenticationFilter,
+            RateLimitFilter rateLimitFilter,
+            RequestSummaryFilter requestSummaryFilter,
             AuthenticationProvider authenticationProvider) {
         this.authenticationProvider = authenticationProvider;
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
+        this.requestSummaryFilter = requestSummaryFilter;
     }
 
     @Bean
@@ -40,18 +55,31 @@ public class SecurityConfiguration {
                 .sessionManagement(c -> c.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
+                .addFilterBefore(requestSummaryFilter, JwtAuthenticationFilter.class)
                 .authorizeHttpRequests(request -> request
-                        .requestMatchers("/users/login", "/users/register").permitAll()
+                        // Completing an SSE stream dispatches again; the request was authorized when it started
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .requestMatchers("/users/login", "/users/register", "/users/token/refresh", "/users/logout").permitAll()
+                        .requestMatchers("/.well-known/jwks.json").permitAll()
                         .requestMatchers("/v3/api-docs/**").permitAll()
                         .requestMatchers("/swagger-ui/**").permitAll()
                         .requestMatchers("/swagger-ui.html").permitAll()
                         .requestMatchers("/swagger-resources/**").permitAll()
                         .requestMatchers("/webjars/**").permitAll()
+                        .requestMatchers("/actuator/health/**", "/actuator/info").permitAll()
+                        // Scraped by Prometheus on the unpublished management port; anywhere else it needs a token
+                        .requestMatchers(new AndRequestMatcher(onManagementPort(),
+                                PathPatternRequestMatcher.withDefaults().matcher("/actuator/prometheus"))).permitAll()
                         .requestMatchers("/clients/**").authenticated()
                         .anyRequest().authenticated());
         return http.build();
     }
 
+    private RequestMatcher onManagementPort() {
+        return request -> managementPort > 0 && request.getLocalPort() == managementPort;
+    }
+
     @Bean
     CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -63,7 +91,9 @@ public class SecurityConfiguration {
                 .toList());
 
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With",
+                "If-Match", "If-None-Match", "Last-Event-ID"));
+        configuration.setExposedHeaders(List.of("ETag", "Retry-After"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
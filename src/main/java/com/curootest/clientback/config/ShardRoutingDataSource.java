@@ -0,0 +1,75 @@
+package com.curootest.clientback.config;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Application DataSource when clients are sharded, handing out connections of the shard selected by
+ * {@link ShardContext}. Shard 0 is the primary database, which keeps the users and the shard directory;
+ * the directory has a pool of its own so its locks never compete with the shard transactions for connections,
+ * and the ID number registry another one, since writes claim ID numbers while holding a directory connection.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final List<DataSource> shards;
+    private final DataSource directory;
+    private final DataSource idNumbers;
+
+    public ShardRoutingDataSource(List<DataSource> shards, DataSource directory, DataSource idNumbers) {
+        this.shards = List.copyOf(shards);
+        this.directory = directory;
+        this.idNumbers = idNumbers;
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(ShardContext.DEFAULT_SHARD));
+        // An unknown shard is a routing bug, never fall back to the primary
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Number of shards behind the given application DataSource, 1 when it is not sharded
+     */
+    public static int shardCountOf(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ShardRoutingDataSource.class)
+                    ? dataSource.unwrap(ShardRoutingDataSource.class).getShardCount()
+                    : 1;
+        } catch (SQLException e) {
+            return 1;
+        }
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * The DataSource of one shard, for work that spans shards and so cannot go through {@link ShardContext}
+     */
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    public DataSource getDirectory() {
+        return directory;
+    }
+
+    public DataSource getIdNumbers() {
+        return idNumbers;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
@@ -0,0 +1,126 @@
+package com.curootest.clientback.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Spreads clients over several databases when sharding is enabled. The application DataSource becomes shard 0
+ * and the databases listed in {@code datasource.shards.urls} shards 1 to N, all behind a
+ * {@link ShardRoutingDataSource}; separate pools on the primary serve the shard directory and the ID number
+ * registry.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.shards.enabled", havingValue = "true")
+public class ShardingPostProcessor implements BeanPostProcessor, Ordered, DisposableBean {
+
+    private final List<String> urls;
+    private final String username;
+    private final String password;
+    private final int poolSize;
+    private final long connectionTimeoutMillis;
+    private final String directoryUrl;
+    private final String directoryUsername;
+    private final String directoryPassword;
+    private final int directoryPoolSize;
+    private final int idNumberPoolSize;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private ShardRoutingDataSource routing;
+
+    public ShardingPostProcessor(
+            @Value("${datasource.shards.urls}") String urls,
+            @Value("${datasource.shards.username}") String username,
+            @Value("${datasource.shards.password}") String password,
+            @Value("${datasource.shards.pool-size}") int poolSize,
+            @Value("${datasource.shards.connection-timeout-ms}") long connectionTimeoutMillis,
+            @Value("${spring.datasource.url}") String directoryUrl,
+            @Value("${spring.datasource.username}") String directoryUsername,
+            @Value("${spring.datasource.password}") String directoryPassword,
+            @Value("${datasource.shards.directory-pool-size}") int directoryPoolSize,
+            @Value("${datasource.shards.id-number-pool-size}") int idNumberPoolSize,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.urls = Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+        this.username = username;
+        this.password = password;
+        this.poolSize = poolSize;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.directoryUrl = directoryUrl;
+        this.directoryUsername = directoryUsername;
+        this.directoryPassword = directoryPassword;
+        this.directoryPoolSize = directoryPoolSize;
+        this.idNumberPoolSize = idNumberPoolSize;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * After the replicas, which then serve the reads of shard 0, and before admission control,
+     * so its permits bound the connections of every shard
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!(bean instanceof DataSource primary) || routing != null) {
+            return bean;
+        }
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        List<DataSource> shards = new ArrayList<>(urls.size() + 1);
+        shards.add(primary);
+        for (int i = 0; i < urls.size(); i++) {
+            shards.add(createPool("shard-" + (i + 1), urls.get(i), username, password, poolSize, registry));
+        }
+        DataSource directory = createPool("shard-directory", directoryUrl, directoryUsername, directoryPassword,
+                directoryPoolSize, registry);
+        DataSource idNumbers = createPool("shard-id-numbers", directoryUrl, directoryUsername, directoryPassword,
+                idNumberPoolSize, registry);
+        routing = new ShardRoutingDataSource(shards, directory, idNumbers);
+        return routing;
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private HikariDataSource createPool(String name, String url, String user, String secret, int size,
+            MeterRegistry registry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setUsername(user);
+        config.setPassword(secret);
+        config.setMaximumPoolSize(size);
+        config.setConnectionTimeout(connectionTimeoutMillis);
+        // Batched inserts for imports and rebalancing, as on the primary
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        if (registry != null) {
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        }
+        HikariDataSource pool = new HikariDataSource(config);
+        pools.add(pool);
+        return pool;
+    }
+}
@@ -0,0 +1,131 @@
+package com.curootest.clientback.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.curootest.clientback.domain.dto.TokenClaims;
+import com.curootest.clientback.exception.TokenRevocationUnavailableException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * In-memory record of revoked access tokens, checked on every request without a database hit.
+ * Single tokens are denied by their ID until they expire, after which the signature check rejects them anyway;
+ * revoking a user denies every token issued to it up to that moment.
+ * Entries are only dropped when they expire, never to make room: while the set is full, new revocations are
+ * refused instead, so a revoked token can never become valid again.
+ * The set is local to the instance and lost on restart, which is bounded by the short access token lifetime;
+ * refresh tokens live much longer and are tracked on the database instead, see RefreshTokenDTORepository.
+ */
+@Component
+public class TokenDenylist {
+
+    private static final String CACHE_NAME = "jwt.denylist";
+
+    // Access tokens expire within minutes, so a full set usually has room again by then
+    private static final long FULL_RETRY_AFTER_SECONDS = 60;
+
+    // Token ID to its expiration in epoch milliseconds; UUID keys are two longs instead of a 36 char string
+    private final Cache<UUID, Long> deniedTokens;
+    // User ID to the epoch millisecond up to which its tokens were issued and are denied
+    private final Cache<Integer, Long> deniedUsers;
+    private final long maxSize;
+
+    public TokenDenylist(
+            @Value("${security.jwt.denylist.max-size:100000}") long maxSize,
+            @Value("${security.jwt.token.expire-length}") long accessExpiration,
+            MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.deniedTokens = Caffeine.newBuilder()
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        // No access token issued before the cutoff outlives the access token lifetime; at most one entry per user
+        this.deniedUsers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(accessExpiration))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, deniedTokens, CACHE_NAME);
+    }
+
+    /**
+     * Deny a token until it expires
+     *
+     * @return false if the token was already denied
+     * @throws TokenRevocationUnavailableException if the set is full of unexpired tokens
+     */
+    public boolean revoke(TokenClaims claims) {
+        UUID tokenId = parseTokenId(claims.getTokenId());
+        if (tokenId == null || claims.getExpiration() == null) {
+            return false;
+        }
+        if (deniedTokens.estimatedSize() >= maxSize) {
+            // The estimate still counts expired entries until they are cleaned up
+            deniedTokens.cleanUp();
+            if (deniedTokens.estimatedSize() >= maxSize) {
+                throw new TokenRevocationUnavailableException("Token revocation is temporarily unavailable.",
+                        FULL_RETRY_AFTER_SECONDS);
+            }
+        }
+        return deniedTokens.asMap().putIfAbsent(tokenId, claims.getExpiration().toEpochMilli()) == null;
+    }
+
+    /**
+     * Deny every access token issued to a user so far, e.g. after a password change or a refresh token reuse
+     */
+    public void revokeUser(Integer userId) {
+        if (userId != null) {
+            deniedUsers.put(userId, Instant.now().toEpochMilli());
+        }
+    }
+
+    public boolean isRevoked(TokenClaims claims) {
+        UUID tokenId = parseTokenId(claims.getTokenId());
+        if (tokenId != null && deniedTokens.getIfPresent(tokenId) != null) {
+            return true;
+        }
+        if (claims.getUserId() == null || claims.getIssuedAt() == null) {
+            return false;
+        }
+        Long cutoff = deniedUsers.getIfPresent(claims.getUserId());
+        // Tokens without a millisecond issue time count from the start of their second, so those issued in the
+        // second of the revocation are denied as well
+        return cutoff != null && claims.getIssuedAt().toEpochMilli() <= cutoff;
+    }
+
+    private static UUID parseTokenId(String tokenId) {
+        if (tokenId == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(tokenId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<UUID, Long> {
+
+        @Override
+        public long expireAfterCreate(UUID key, Long expiresAtMillis, long currentTime) {
+            return Duration.ofMillis(Math.max(0, expiresAtMillis - System.currentTimeMillis())).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(UUID key, Long expiresAtMillis, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, expiresAtMillis, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(UUID key, Long expiresAtMillis, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -7,6 +7,22 @@ public class ClientDTO {
     private String surname;
     private String idType;
     private String idNumber;
+    private Long version;
+
+    public ClientDTO() {
+    }
+
+    /**
+     * Used by the projection queries, which select these columns straight into DTOs without loading entities
+     */
+    public ClientDTO(Integer id, String name, String surname, String idType, String idNumber, Long version) {
+        this.id = id != null ? String.valueOf(id) : null;
+        this.name = name;
+        this.surname = surname;
+        this.idType = idType;
+        this.idNumber = idNumber;
+        this.version = version;
+    }
 
     // Getters and Setters
     public String getId() {
@@ -48,4 +64,12 @@ public class ClientDTO {
     public void setIdNumber(String idNumber) {
         this.idNumber = idNumber;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
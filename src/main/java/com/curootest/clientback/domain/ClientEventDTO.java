@@ -0,0 +1,72 @@
+package com.curootest.clientback.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * A create, update or delete of a client, as published to downstream systems.
+ * Delivery is at least once and in no guaranteed order, as relays on several instances publish batches
+ * side by side: consumers must deduplicate on the event ID and apply the events of a client by its
+ * version, a DELETED event winning over an UPDATED one of the same version. Event IDs are handed out in
+ * blocks per instance, so they don't follow the order of the changes.
+ */
+public class ClientEventDTO {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private Long eventId;
+    private Type type;
+    private Integer clientId;
+    private Integer userId;
+    private ClientDTO client;
+    private LocalDateTime occurredAt;
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Integer getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(Integer clientId) {
+        this.clientId = clientId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public ClientDTO getClient() {
+        return client;
+    }
+
+    public void setClient(ClientDTO client) {
+        this.client = client;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
@@ -7,6 +7,7 @@ public class UserDTO {
     private String email;
     private String password;
     private String mobilePhone;
+    private Long version;
 
     // Getters and Setters
     public String getId() {
@@ -56,4 +57,12 @@ public class UserDTO {
     public void setMobilePhone(String mobilePhone) {
         this.mobilePhone = mobilePhone;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,47 @@
+package com.curootest.clientback.domain.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Summary and per-row outcome of a bulk client import")
+public class BulkImportResult {
+
+    @Schema(description = "Number of clients created", example = "998")
+    private int created;
+
+    @Schema(description = "Number of clients skipped because their ID number already exists", example = "2")
+    private int duplicates;
+
+    @Schema(description = "Number of clients rejected as invalid or failed to save", example = "0")
+    private int rejected;
+
+    @Schema(description = "Outcome of every client in payload order")
+    private List<BulkImportRow> rows = new ArrayList<>();
+
+    public void addRow(BulkImportRow row) {
+        switch (row.getStatus()) {
+            case CREATED -> created++;
+            case DUPLICATE -> duplicates++;
+            default -> rejected++;
+        }
+        rows.add(row);
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public List<BulkImportRow> getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,85 @@
+package com.curootest.clientback.domain.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of importing a single client")
+public class BulkImportRow {
+
+    public enum Status {
+        CREATED, DUPLICATE, INVALID, FAILED
+    }
+
+    @Schema(description = "Zero-based position of the client in the payload", example = "0")
+    private int index;
+
+    @Schema(description = "Identification number of the client", example = "1234567890")
+    private String idNumber;
+
+    @Schema(description = "Outcome of the import", example = "CREATED")
+    private Status status;
+
+    @Schema(description = "ID of the created client", example = "1")
+    private String clientId;
+
+    @Schema(description = "Reason the client was not created", example = "A client with this ID number already exists")
+    private String message;
+
+    public BulkImportRow() {
+    }
+
+    public BulkImportRow(int index, String idNumber, Status status, String clientId, String message) {
+        this.index = index;
+        this.idNumber = idNumber;
+        this.status = status;
+        this.clientId = clientId;
+        this.message = message;
+    }
+
+    public static BulkImportRow created(int index, String idNumber, String clientId) {
+        return new BulkImportRow(index, idNumber, Status.CREATED, clientId, null);
+    }
+
+    public static BulkImportRow rejected(int index, String idNumber, Status status, String message) {
+        return new BulkImportRow(index, idNumber, status, null, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getIdNumber() {
+        return idNumber;
+    }
+
+    public void setIdNumber(String idNumber) {
+        this.idNumber = idNumber;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
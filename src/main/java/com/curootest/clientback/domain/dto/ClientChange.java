@@ -0,0 +1,50 @@
+package com.curootest.clientback.domain.dto;
+
+import com.curootest.clientback.domain.ClientDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Change of one of the authenticated user's clients, pushed on /clients/stream")
+public class ClientChange {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED,
+        // Changes were missed, e.g. after a bulk import or a too old Last-Event-ID; reload the clients
+        RESET
+    }
+
+    @Schema(description = "Event ID to resume from with Last-Event-ID", example = "lx2k4f-1042")
+    private final String id;
+
+    @Schema(description = "Kind of change")
+    private final Type type;
+
+    @Schema(description = "ID of the changed client, absent on RESET", example = "42")
+    private final Integer clientId;
+
+    @Schema(description = "Client after the change, absent on DELETED and RESET")
+    private final ClientDTO client;
+
+    public ClientChange(String id, Type type, Integer clientId, ClientDTO client) {
+        this.id = id;
+        this.type = type;
+        this.clientId = clientId;
+        this.client = client;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getClientId() {
+        return clientId;
+    }
+
+    public ClientDTO getClient() {
+        return client;
+    }
+}
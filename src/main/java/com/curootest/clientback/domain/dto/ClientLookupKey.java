@@ -0,0 +1,37 @@
+package com.curootest.clientback.domain.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Identification document of a client to look up")
+public class ClientLookupKey {
+
+    @Schema(description = "Type of identification", example = "CC")
+    private String idType;
+
+    @Schema(description = "Identification number", example = "1234567890")
+    private String idNumber;
+
+    public ClientLookupKey() {
+    }
+
+    public ClientLookupKey(String idType, String idNumber) {
+        this.idType = idType;
+        this.idNumber = idNumber;
+    }
+
+    public String getIdType() {
+        return idType;
+    }
+
+    public void setIdType(String idType) {
+        this.idType = idType;
+    }
+
+    public String getIdNumber() {
+        return idNumber;
+    }
+
+    public void setIdNumber(String idNumber) {
+        this.idNumber = idNumber;
+    }
+}
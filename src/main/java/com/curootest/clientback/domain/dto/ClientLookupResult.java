@@ -0,0 +1,40 @@
+package com.curootest.clientback.domain.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Summary and per-key outcome of a batch client lookup")
+public class ClientLookupResult {
+
+    @Schema(description = "Number of keys with a matching client", example = "480")
+    private int found;
+
+    @Schema(description = "Number of keys without a matching client", example = "20")
+    private int missing;
+
+    @Schema(description = "Outcome of every key in request order")
+    private List<ClientLookupRow> rows = new ArrayList<>();
+
+    public void addRow(ClientLookupRow row) {
+        if (row.isFound()) {
+            found++;
+        } else {
+            missing++;
+        }
+        rows.add(row);
+    }
+
+    public int getFound() {
+        return found;
+    }
+
+    public int getMissing() {
+        return missing;
+    }
+
+    public List<ClientLookupRow> getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,63 @@
+package com.curootest.clientback.domain.dto;
+
+import com.curootest.clientback.domain.ClientDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of looking up a single identification document")
+public class ClientLookupRow {
+
+    @Schema(description = "Type of identification", example = "CC")
+    private String idType;
+
+    @Schema(description = "Identification number", example = "1234567890")
+    private String idNumber;
+
+    @Schema(description = "Whether the authenticated user has a client with this document", example = "true")
+    private boolean found;
+
+    @Schema(description = "The client, absent when not found")
+    private ClientDTO client;
+
+    public ClientLookupRow() {
+    }
+
+    public ClientLookupRow(String idType, String idNumber, ClientDTO client) {
+        this.idType = idType;
+        this.idNumber = idNumber;
+        this.found = client != null;
+        this.client = client;
+    }
+
+    public String getIdType() {
+        return idType;
+    }
+
+    public void setIdType(String idType) {
+        this.idType = idType;
+    }
+
+    public String getIdNumber() {
+        return idNumber;
+    }
+
+    public void setIdNumber(String idNumber) {
+        this.idNumber = idNumber;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public void setFound(boolean found) {
+        this.found = found;
+    }
+
+    public ClientDTO getClient() {
+        return client;
+    }
+
+    public void setClient(ClientDTO client) {
+        this.client = client;
+    }
+}
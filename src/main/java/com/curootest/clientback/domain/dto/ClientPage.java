@@ -0,0 +1,41 @@
+package com.curootest.clientback.domain.dto;
+
+import java.util.List;
+
+import com.curootest.clientback.domain.ClientDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Page of clients ordered by client ID")
+public class ClientPage {
+
+    @Schema(description = "Clients in this page")
+    private List<ClientDTO> items;
+
+    @Schema(description = "Cursor to request the next page with, absent on the last page", example = "1042")
+    private Integer nextCursor;
+
+    public ClientPage() {
+    }
+
+    public ClientPage(List<ClientDTO> items, Integer nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ClientDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ClientDTO> items) {
+        this.items = items;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -2,12 +2,18 @@ package com.curootest.clientback.domain.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 
-@Schema(description = "Login response containing JWT token")
+@Schema(description = "Login response containing the access and refresh tokens")
 public class LoginResponse {
 
-    @Schema(description = "JWT token for authentication", example = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9...")
+    @Schema(description = "Short-lived JWT access token for authentication", example = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9...")
     private String token;
 
+    @Schema(description = "Single-use JWT refresh token to get a new token pair without the password", example = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9...")
+    private String refreshToken;
+
+    @Schema(description = "Seconds until the access token expires", example = "900")
+    private long expiresIn;
+
     public LoginResponse() {
     }
 
@@ -15,6 +21,12 @@ public class LoginResponse {
         this.token = token;
     }
 
+    public LoginResponse(String token, String refreshToken, long expiresIn) {
+        this.token = token;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
+    }
+
     public String getToken() {
         return token;
     }
@@ -22,4 +34,20 @@ public class LoginResponse {
     public void setToken(String token) {
         this.token = token;
     }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
+    public void setExpiresIn(long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
 }
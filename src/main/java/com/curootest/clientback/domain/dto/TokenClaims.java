@@ -0,0 +1,76 @@
+package com.curootest.clientback.domain.dto;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of the claims of a verified JWT
+ */
+public final class TokenClaims {
+
+    /**
+     * Access tokens authenticate requests, refresh tokens can only be exchanged for a new pair
+     */
+    public enum Type {
+        ACCESS, REFRESH
+    }
+
+    private final String tokenId;
+    private final String familyId;
+    private final Type type;
+    private final String subject;
+    private final Integer userId;
+    private final Instant issuedAt;
+    private final Instant expiration;
+
+    public TokenClaims(String tokenId, String familyId, Type type, String subject, Integer userId,
+            Instant issuedAt, Instant expiration) {
+        this.tokenId = tokenId;
+        this.familyId = familyId;
+        this.type = type;
+        this.subject = subject;
+        this.userId = userId;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    /**
+     * Unique ID (jti) used to revoke the token, or null for tokens issued without it
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    /**
+     * Refresh token family the token belongs to, or null for access tokens and refresh tokens issued without it
+     */
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * ID of the user the token was issued to, or null for tokens issued without it
+     */
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiration() {
+        return expiration;
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.isBefore(Instant.now());
+    }
+}
@@ -1,9 +1,13 @@
 package com.curootest.clientback.domain.repository;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.dto.BulkImportResult;
 
 /**
  * Repository interface for client data operations
@@ -14,30 +18,62 @@ public interface ClientDTORepository {
     /**
      * Get all clients for a specific user
      */
-    List<ClientDTO> getAllByUserEmail(String userEmail);
+    List<ClientDTO> getAllByUserId(Integer userId);
+
+    /**
+     * Get a fingerprint of all clients of a specific user that changes whenever one of them changes
+     */
+    String getFingerprintByUserId(Integer userId);
+
+    /**
+     * Get up to limit clients for a specific user with an ID greater than afterId, ordered by ID
+     */
+    List<ClientDTO> getPageByUserId(Integer userId, Integer afterId, int limit);
+
+    /**
+     * Get up to limit clients for a specific user whose name, surname or ID number contains the query,
+     * with an ID greater than afterId, ordered by ID
+     */
+    List<ClientDTO> searchByUserId(Integer userId, String query, Integer afterId, int limit);
+
+    /**
+     * Pass every client of a specific user to the consumer, ordered by ID, without holding them all in memory
+     */
+    void streamAllByUserId(Integer userId, Consumer<ClientDTO> consumer);
 
     /**
      * Get a client by ID type and number for a specific user
      */
-    Optional<ClientDTO> getByIdNumberAndUserEmail(String idType, String idNumber, String userEmail);
+    Optional<ClientDTO> getByIdNumberAndUserId(String idType, String idNumber, Integer userId);
+
+    /**
+     * Get the clients of a specific user with any of the given ID numbers, in no particular order
+     */
+    List<ClientDTO> getByIdNumbersAndUserId(Collection<String> idNumbers, Integer userId);
 
     /**
      * Save a client for a specific user
      */
-    ClientDTO saveClient(ClientDTO clientDTO, String userEmail);
+    ClientDTO saveClient(ClientDTO clientDTO, Integer userId);
 
     /**
-     * Check if client exists and belongs to user
+     * Save many clients for a specific user in batches, reporting the outcome of each one
      */
-    boolean existsByIdAndUserEmail(Integer clientId, String userEmail);
+    BulkImportResult importClients(Iterator<ClientDTO> clients, Integer userId, int batchSize);
 
     /**
-     * Update a client by ID for a specific user
+     * Update a client by ID for a specific user. When an expected version is given, the client
+     * is only updated if it still has that version.
+     *
+     * @return the updated client, or null if it doesn't exist or belongs to another user
+     * @throws com.curootest.clientback.exception.VersionConflictException if the client has another version
      */
-    ClientDTO updateClientByUserEmail(Integer clientId, ClientDTO clientDTO, String userEmail);
+    ClientDTO updateClientByUserId(Integer clientId, ClientDTO clientDTO, Integer userId, Long expectedVersion);
 
     /**
      * Delete a client by ID for a specific user
+     *
+     * @return false if the client doesn't exist or belongs to another user
      */
-    boolean deleteClientByUserEmail(Integer clientId, String userEmail);
+    boolean deleteClientByUserId(Integer clientId, Integer userId);
 }
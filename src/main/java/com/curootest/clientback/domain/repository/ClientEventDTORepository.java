@@ -0,0 +1,20 @@
+package com.curootest.clientback.domain.repository;
+
+import java.util.List;
+
+import com.curootest.clientback.domain.ClientEventDTO;
+
+public interface ClientEventDTORepository {
+    // Lock the oldest unpublished events, skipping those locked by another relay; needs a transaction.
+    // Events whose snapshot cannot be read are moved to the dead letters instead.
+    List<ClientEventDTO> lockPending(int limit);
+
+    // Remove published events
+    void deleteEvents(List<Long> eventIds);
+
+    // Count a failed attempt to publish a locked event, returning its attempts so far
+    int recordFailure(Long eventId);
+
+    // Move a locked event the sink keeps rejecting to the dead letters
+    void deadLetter(Long eventId, String error);
+}
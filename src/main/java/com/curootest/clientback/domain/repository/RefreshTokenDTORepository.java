@@ -0,0 +1,21 @@
+package com.curootest.clientback.domain.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface RefreshTokenDTORepository {
+    // Start a family with its first refresh token
+    void startFamily(UUID familyId, Integer userId, UUID tokenId, Instant expiresAt);
+
+    // Replace the family's current token; false if the given token was rotated, logged out or expired
+    boolean rotate(UUID familyId, UUID tokenId, UUID newTokenId, Instant expiresAt);
+
+    // End a family, returning whether it still existed
+    boolean revokeFamily(UUID familyId);
+
+    // End every family of a user
+    void revokeUser(Integer userId);
+
+    // Delete the families whose current token has expired
+    int deleteExpired();
+}
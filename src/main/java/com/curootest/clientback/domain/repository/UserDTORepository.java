@@ -18,5 +18,9 @@ public interface UserDTORepository {
     // Method to delete a user by ID
     void deleteUserById(String id);
 
+    // Method to find a user by email, possibly a little stale when read from a replica
     Optional<UserDTO> findByEmail(String email);
+
+    // Method to find a user by email on the primary, including writes that just committed
+    Optional<UserDTO> findCurrentByEmail(String email);
 }
@@ -0,0 +1,253 @@
+package com.curootest.clientback.domain.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.dto.ClientChange;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-process fan-out of client changes to the live subscribers of each user.
+ * Every user with subscribers has a bounded replay buffer, kept for a while after the last one leaves,
+ * so a reconnecting subscriber can resume from its Last-Event-ID instead of reloading all clients.
+ * Each subscriber is served by its own virtual thread draining a bounded queue; a subscriber that
+ * falls behind is disconnected rather than slowing down the writers.
+ */
+@Service
+public class ClientChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientChangeFeed.class);
+
+    /**
+     * Receives the changes of one subscription on its delivery thread
+     */
+    public interface Listener {
+
+        void onChange(ClientChange change) throws Exception;
+
+        // Called when no change was delivered for the heartbeat interval, so dead connections are noticed
+        void onHeartbeat() throws Exception;
+
+        // Called once when the subscription ends, whatever the cause
+        void onClose();
+    }
+
+    /**
+     * Handle to end a subscription, e.g. when the client disconnects
+     */
+    public interface Subscription {
+
+        void cancel();
+    }
+
+    // Event IDs from another run of this instance can't be resumed from
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+
+    private final int replaySize;
+    private final long replayTtlMillis;
+    private final int queueCapacity;
+    private final long heartbeatMillis;
+
+    public ClientChangeFeed(
+            @Value("${clients.stream.replay-size:100}") int replaySize,
+            @Value("${clients.stream.replay-ttl-ms:300000}") long replayTtlMillis,
+            @Value("${clients.stream.queue-capacity:256}") int queueCapacity,
+            @Value("${clients.stream.heartbeat-ms:15000}") long heartbeatMillis,
+            MeterRegistry meterRegistry) {
+        this.replaySize = replaySize;
+        this.replayTtlMillis = replayTtlMillis;
+        this.queueCapacity = queueCapacity;
+        this.heartbeatMillis = heartbeatMillis;
+        Gauge.builder("clients.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Push a change to the user's subscribers; a no-op when nobody is listening
+     */
+    public void publish(Integer userId, ClientChange.Type type, Integer clientId, ClientDTO client) {
+        Channel channel = channels.get(userId);
+        if (channel == null) {
+            return;
+        }
+
+        synchronized (channel) {
+            long seq = sequence.incrementAndGet();
+            ClientChange change = new ClientChange(eventId(seq), type, clientId, client);
+            if (channel.replay.size() == replaySize) {
+                channel.evictedUpTo = sequenceOf(channel.replay.removeFirst());
+            }
+            channel.replay.addLast(change);
+            for (Subscriber subscriber : channel.subscribers) {
+                if (!subscriber.queue.offer(change)) {
+                    // It will reconnect and catch up from the replay buffer
+                    subscriber.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Subscribe to the user's changes. With a last event ID, the buffered changes after it are delivered first,
+     * or a RESET if some of them are no longer buffered.
+     */
+    public Subscription subscribe(Integer userId, String lastEventId, Listener listener) {
+        Subscriber subscriber = new Subscriber(new ArrayBlockingQueue<>(queueCapacity + replaySize + 1));
+        Channel channel;
+        while (true) {
+            channel = channels.computeIfAbsent(userId, id -> new Channel(sequence.get()));
+            synchronized (channel) {
+                // The sweeper may have dropped the channel between the lookup and the lock
+                if (channels.get(userId) != channel) {
+                    continue;
+                }
+                if (lastEventId != null) {
+                    replay(channel, lastEventId, subscriber);
+                }
+                channel.subscribers.add(subscriber);
+                break;
+            }
+        }
+        subscriberCount.incrementAndGet();
+
+        Channel subscribedChannel = channel;
+        subscriber.thread = Thread.ofVirtual()
+                .name("client-stream-" + userId)
+                .start(() -> deliver(subscribedChannel, subscriber, listener));
+        return subscriber::cancel;
+    }
+
+    /**
+     * Drop the replay buffers of users that have had no subscribers for the replay TTL
+     */
+    @Scheduled(fixedDelayString = "${clients.stream.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        channels.forEach((userId, channel) -> {
+            synchronized (channel) {
+                if (channel.subscribers.isEmpty() && now - channel.idleSinceMillis > replayTtlMillis) {
+                    channels.remove(userId, channel);
+                }
+            }
+        });
+    }
+
+    private void replay(Channel channel, String lastEventId, Subscriber subscriber) {
+        long lastSeq = parseSequence(lastEventId);
+        if (lastSeq < channel.evictedUpTo) {
+            subscriber.queue.offer(new ClientChange(eventId(sequence.get()), ClientChange.Type.RESET, null, null));
+            return;
+        }
+        for (ClientChange change : channel.replay) {
+            if (sequenceOf(change) > lastSeq) {
+                subscriber.queue.offer(change);
+            }
+        }
+    }
+
+    private void deliver(Channel channel, Subscriber subscriber, Listener listener) {
+        try {
+            while (!subscriber.cancelled) {
+                ClientChange change = subscriber.queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                if (subscriber.cancelled) {
+                    break;
+                }
+                if (change == null) {
+                    listener.onHeartbeat();
+                } else {
+                    listener.onChange(change);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // The client went away; it resumes with Last-Event-ID when it reconnects
+            logger.debug("Client stream subscriber disconnected: {}", e.getMessage());
+        } finally {
+            synchronized (channel) {
+                channel.subscribers.remove(subscriber);
+                if (channel.subscribers.isEmpty()) {
+                    channel.idleSinceMillis = System.currentTimeMillis();
+                }
+            }
+            subscriberCount.decrementAndGet();
+            listener.onClose();
+        }
+    }
+
+    private String eventId(long seq) {
+        return epoch + "-" + seq;
+    }
+
+    /**
+     * Get the sequence number of an event ID, or -1 if it was not issued by this run of the instance
+     */
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long sequenceOf(ClientChange change) {
+        String id = change.getId();
+        return Long.parseLong(id.substring(id.lastIndexOf('-') + 1));
+    }
+
+    private static final class Channel {
+        private final Deque<ClientChange> replay = new ArrayDeque<>();
+        private final Set<Subscriber> subscribers = new HashSet<>();
+        // Changes up to this sequence may have been missed by anyone resuming from an older event
+        private long evictedUpTo;
+        private long idleSinceMillis;
+
+        private Channel(long createdAtSequence) {
+            this.evictedUpTo = createdAtSequence;
+            this.idleSinceMillis = System.currentTimeMillis();
+        }
+    }
+
+    private static final class Subscriber {
+        private final BlockingQueue<ClientChange> queue;
+        private volatile boolean cancelled;
+        private volatile Thread thread;
+
+        private Subscriber(BlockingQueue<ClientChange> queue) {
+            this.queue = queue;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Thread deliveryThread = thread;
+            if (deliveryThread != null) {
+                deliveryThread.interrupt();
+            }
+        }
+    }
+}
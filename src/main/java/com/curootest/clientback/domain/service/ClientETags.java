@@ -0,0 +1,50 @@
+package com.curootest.clientback.domain.service;
+
+import java.util.Collection;
+
+import com.curootest.clientback.domain.ClientDTO;
+
+/**
+ * Strong entity tags for client resources, returned unquoted.
+ * A client's tag is its ID and version, so it changes with every update.
+ */
+public final class ClientETags {
+
+    private static final String VERSION_SEPARATOR = "-v";
+
+    private ClientETags() {
+    }
+
+    /**
+     * Tag of a single client
+     */
+    public static String of(ClientDTO client) {
+        return client.getId() + VERSION_SEPARATOR + client.getVersion();
+    }
+
+    /**
+     * Tag of a user's client collection, derived from the fingerprint of its rows
+     */
+    public static String ofCollection(String fingerprint) {
+        return "c-" + fingerprint;
+    }
+
+    /**
+     * Get the client version named by the first of the tags issued for the given client
+     *
+     * @return the version, or null if none of the tags belongs to the client
+     */
+    public static Long versionOf(Integer clientId, Collection<String> tags) {
+        String prefix = clientId + VERSION_SEPARATOR;
+        for (String tag : tags) {
+            if (tag.startsWith(prefix)) {
+                try {
+                    return Long.valueOf(tag.substring(prefix.length()));
+                } catch (NumberFormatException e) {
+                    // Not one of our tags, keep looking
+                }
+            }
+        }
+        return null;
+    }
+}
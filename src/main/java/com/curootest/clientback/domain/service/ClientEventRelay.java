@@ -0,0 +1,162 @@
+package com.curootest.clientback.domain.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.curootest.clientback.config.ShardContext;
+import com.curootest.clientback.config.ShardRoutingDataSource;
+import com.curootest.clientback.domain.ClientEventDTO;
+import com.curootest.clientback.domain.repository.ClientEventDTORepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Moves client change events from the outbox to the sink in the background, so writes never wait
+ * on publishing. Each batch is locked, published and deleted in one transaction; batches are drained
+ * back to back while the outbox is full, then the relay sleeps for the flush interval. Several
+ * instances can relay at once since locked rows are skipped. With sharded clients every shard has its
+ * own outbox, drained one after the other.
+ *
+ * When a batch fails its events are retried one at a time, so a single event the sink keeps rejecting
+ * is set apart: after max-attempts failed runs it moves to the dead letters and the events behind it
+ * go on. Skipped locks mean two instances can publish neighbouring batches out of order, so consumers
+ * must order by the client version, as documented on {@link ClientEventDTO}.
+ */
+@Service
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class ClientEventRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientEventRelay.class);
+
+    private final ClientEventDTORepository clientEventRepository;
+    private final ClientEventSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int shardCount;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+
+    public ClientEventRelay(
+            ClientEventDTORepository clientEventRepository,
+            ClientEventSink sink,
+            PlatformTransactionManager transactionManager,
+            @Value("${outbox.relay.batch-size:500}") int batchSize,
+            @Value("${outbox.relay.max-attempts:10}") int maxAttempts,
+            DataSource dataSource,
+            MeterRegistry meterRegistry) {
+        this.clientEventRepository = clientEventRepository;
+        this.sink = sink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.shardCount = ShardRoutingDataSource.shardCountOf(dataSource);
+        this.publishedCounter = Counter.builder("outbox.events.published").register(meterRegistry);
+        this.failedCounter = Counter.builder("outbox.relay.failures").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.flush-interval-ms:1000}")
+    public void relay() {
+        for (int shard = 0; shard < shardCount; shard++) {
+            ShardContext.runOn(shard, this::relayShard);
+        }
+    }
+
+    private void relayShard() {
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+        } catch (RuntimeException e) {
+            // The events stay in the outbox and are retried on the next run
+            failedCounter.increment();
+            logger.warn("Publishing client events of shard {} failed, retrying in the next run",
+                    ShardContext.current(), e);
+        }
+    }
+
+    /**
+     * @return number of events that left the outbox, below the batch size once there is nothing more to relay
+     */
+    private int relayBatch() {
+        try {
+            int published = transactionTemplate.execute(status -> publishBatch());
+            publishedCounter.increment(published);
+            return published;
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            logger.warn("Publishing a batch of client events of shard {} failed, publishing them one at a time",
+                    ShardContext.current(), e);
+            return relayOneByOne();
+        }
+    }
+
+    /**
+     * Relay up to a batch one event at a time, stopping at the first event that fails and stays in the outbox
+     */
+    private int relayOneByOne() {
+        int relayed = 0;
+        while (relayed < batchSize && Boolean.TRUE.equals(transactionTemplate.execute(status -> relayEvent()))) {
+            relayed++;
+        }
+        return relayed;
+    }
+
+    /**
+     * @return whether an event left the outbox, published or dead-lettered
+     */
+    private boolean relayEvent() {
+        List<ClientEventDTO> events = clientEventRepository.lockPending(1);
+        if (events.isEmpty()) {
+            return false;
+        }
+
+        Long eventId = events.get(0).getEventId();
+        try {
+            sink.publish(events);
+        } catch (RuntimeException e) {
+            int attempts = clientEventRepository.recordFailure(eventId);
+            if (attempts < maxAttempts) {
+                logger.warn("Publishing client event {} of shard {} failed {} times, retrying in the next run",
+                        eventId, ShardContext.current(), attempts, e);
+                return false;
+            }
+            logger.error("Publishing client event {} of shard {} failed {} times, moving it to the dead letters",
+                    eventId, ShardContext.current(), attempts, e);
+            clientEventRepository.deadLetter(eventId, e.toString());
+            return true;
+        }
+        clientEventRepository.deleteEvents(List.of(eventId));
+        publishedCounter.increment();
+        return true;
+    }
+
+    private int publishBatch() {
+        List<ClientEventDTO> events = clientEventRepository.lockPending(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        sink.publish(events);
+
+        List<Long> eventIds = new ArrayList<>(events.size());
+        for (ClientEventDTO event : events) {
+            eventIds.add(event.getEventId());
+        }
+        clientEventRepository.deleteEvents(eventIds);
+        return events.size();
+    }
+}
@@ -0,0 +1,16 @@
+package com.curootest.clientback.domain.service;
+
+import java.util.List;
+
+import com.curootest.clientback.domain.ClientEventDTO;
+
+/**
+ * Destination of published client changes, e.g. a message broker.
+ * A batch is removed from the outbox only after publish returns, so a failing sink
+ * gets the same events again on the next attempt; an event rejected on its own too many
+ * times is moved to the dead letters.
+ */
+public interface ClientEventSink {
+
+    void publish(List<ClientEventDTO> events);
+}
@@ -1,16 +1,34 @@
 package com.curootest.clientback.domain.service;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.dto.BulkImportResult;
+import com.curootest.clientback.domain.dto.ClientChange;
+import com.curootest.clientback.domain.dto.ClientLookupKey;
+import com.curootest.clientback.domain.dto.ClientLookupResult;
+import com.curootest.clientback.domain.dto.ClientLookupRow;
+import com.curootest.clientback.domain.dto.ClientPage;
 import com.curootest.clientback.domain.repository.ClientDTORepository;
+import com.curootest.clientback.exception.InvalidLookupRequestException;
+import com.curootest.clientback.exception.InvalidSearchQueryException;
+import com.curootest.clientback.exception.PreconditionFailedException;
+import com.curootest.clientback.exception.VersionConflictException;
 
 /**
  * Service for client business operations
@@ -27,74 +45,202 @@ public class ClientService {
     @Autowired
     private SecurityService securityService;
 
+    @Autowired
+    private ClientChangeFeed clientChangeFeed;
+
+    @Value("${clients.pagination.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${clients.pagination.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${clients.bulk.batch-size:500}")
+    private int bulkBatchSize;
+
+    @Value("${clients.search.min-length:3}")
+    private int searchMinLength;
+
+    @Value("${clients.search.max-size:100}")
+    private int searchMaxSize;
+
+    @Value("${clients.lookup.max-keys:500}")
+    private int lookupMaxKeys;
+
     /**
      * Get all clients for the authenticated user
      */
     public List<ClientDTO> getAllClients() {
-        String userEmail = securityService.getCurrentUserEmail();
-        logger.info("Getting all clients for user: {}", userEmail);
-        List<ClientDTO> clients = clientRepository.getAllByUserEmail(userEmail);
-        logger.info("Found {} clients for user: {}", clients.size(), userEmail);
-        return clients;
+        return clientRepository.getAllByUserId(securityService.getCurrentUserId());
+    }
+
+    /**
+     * Get the entity tag of the authenticated user's client collection, without loading the clients
+     */
+    public String getAllClientsETag() {
+        return ClientETags.ofCollection(clientRepository.getFingerprintByUserId(securityService.getCurrentUserId()));
+    }
+
+    /**
+     * Get a page of clients for the authenticated user using the client ID as cursor
+     */
+    public ClientPage getClientsPage(Integer cursor, Integer size) {
+        Integer userId = securityService.getCurrentUserId();
+        int limit = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+
+        // Fetch one extra row to know whether another page follows
+        return toPage(clientRepository.getPageByUserId(userId, cursor == null ? 0 : cursor, limit + 1), limit);
+    }
+
+    /**
+     * Search a page of the authenticated user's clients by name, surname or ID number
+     */
+    public ClientPage searchClients(String query, Integer cursor, Integer size) {
+        if (query == null || query.trim().length() < searchMinLength) {
+            throw new InvalidSearchQueryException(
+                    "Search query must be at least " + searchMinLength + " characters long.");
+        }
+
+        Integer userId = securityService.getCurrentUserId();
+        int limit = size == null ? searchMaxSize : Math.max(1, Math.min(size, searchMaxSize));
+
+        return toPage(clientRepository.searchByUserId(userId, query.trim(), cursor == null ? 0 : cursor, limit + 1),
+                limit);
+    }
+
+    private static ClientPage toPage(List<ClientDTO> clients, int limit) {
+        if (clients.size() <= limit) {
+            return new ClientPage(clients, null);
+        }
+
+        List<ClientDTO> items = clients.subList(0, limit);
+        return new ClientPage(items, Integer.valueOf(items.get(limit - 1).getId()));
+    }
+
+    /**
+     * Pass every client of the authenticated user to the consumer as it is read
+     */
+    public void streamAllClients(Consumer<ClientDTO> consumer) {
+        clientRepository.streamAllByUserId(securityService.getCurrentUserId(), consumer);
     }
 
     /**
      * Get a client by ID type and number for the authenticated user
      */
     public Optional<ClientDTO> getClientByIdNumber(String idType, String idNumber) {
-        String userEmail = securityService.getCurrentUserEmail();
-        logger.info("Getting client by idType: {} and idNumber: {} for user: {}", idType, idNumber, userEmail);
-        Optional<ClientDTO> client = clientRepository.getByIdNumberAndUserEmail(idType, idNumber, userEmail);
-        logger.info("Client found: {} for user: {}", client.isPresent(), userEmail);
-        return client;
+        return clientRepository.getByIdNumberAndUserId(idType, idNumber, securityService.getCurrentUserId());
+    }
+
+    /**
+     * Look up many clients of the authenticated user by ID type and number with a single query
+     */
+    public ClientLookupResult lookupClients(List<ClientLookupKey> keys) {
+        if (keys == null || keys.isEmpty()) {
+            throw new InvalidLookupRequestException("At least one idType and idNumber pair is required.");
+        }
+        if (keys.size() > lookupMaxKeys) {
+            throw new InvalidLookupRequestException("At most " + lookupMaxKeys + " pairs can be looked up at once.");
+        }
+
+        Set<String> idNumbers = new HashSet<>();
+        for (ClientLookupKey key : keys) {
+            if (key == null || key.getIdType() == null || key.getIdNumber() == null) {
+                throw new InvalidLookupRequestException("Every pair needs an idType and an idNumber.");
+            }
+            idNumbers.add(key.getIdNumber());
+        }
+
+        Map<String, ClientDTO> clientsByIdNumber = new HashMap<>();
+        for (ClientDTO client : clientRepository.getByIdNumbersAndUserId(idNumbers,
+                securityService.getCurrentUserId())) {
+            clientsByIdNumber.put(client.getIdNumber(), client);
+        }
+
+        ClientLookupResult result = new ClientLookupResult();
+        for (ClientLookupKey key : keys) {
+            ClientDTO client = clientsByIdNumber.get(key.getIdNumber());
+            // ID numbers are unique, the type only has to agree with the one stored
+            boolean found = client != null && key.getIdType().equals(client.getIdType());
+            result.addRow(new ClientLookupRow(key.getIdType(), key.getIdNumber(), found ? client : null));
+        }
+        return result;
     }
 
     /**
      * Save a client for the authenticated user
      */
     public ClientDTO saveClient(ClientDTO clientDTO) {
-        String userEmail = securityService.getCurrentUserEmail();
-        logger.info("Saving client for user: {}", userEmail);
-        ClientDTO savedClient = clientRepository.saveClient(clientDTO, userEmail);
-        logger.info("Client saved with ID: {} for user: {}", savedClient.getId(), userEmail);
+        Integer userId = securityService.getCurrentUserId();
+        ClientDTO savedClient = clientRepository.saveClient(clientDTO, userId);
+        clientChangeFeed.publish(userId, ClientChange.Type.CREATED, Integer.valueOf(savedClient.getId()), savedClient);
         return savedClient;
     }
 
+    /**
+     * Save many clients for the authenticated user, reporting the outcome of each one
+     */
+    public BulkImportResult importClients(Iterator<ClientDTO> clients) {
+        Integer userId = securityService.getCurrentUserId();
+        BulkImportResult result = clientRepository.importClients(clients, userId, bulkBatchSize);
+        if (result.getCreated() > 0) {
+            // One reload is cheaper for subscribers than an event per imported client
+            clientChangeFeed.publish(userId, ClientChange.Type.RESET, null, null);
+        }
+        return result;
+    }
+
     /**
      * Update a client for the authenticated user
      */
     public Optional<ClientDTO> updateClient(Integer clientId, ClientDTO clientDTO) {
-        String userEmail = securityService.getCurrentUserEmail();
-        logger.info("Attempting to update client ID: {} for user: {}", clientId, userEmail);
-
-        // First check if client exists and belongs to user
-        boolean exists = clientRepository.existsByIdAndUserEmail(clientId, userEmail);
-        logger.info("Client ID: {} exists for user {}: {}", clientId, userEmail, exists);
+        return updateClient(clientId, clientDTO, null);
+    }
 
-        if (!exists) {
-            logger.warn("Client ID: {} not found or doesn't belong to user: {}", clientId, userEmail);
-            return Optional.empty();
+    /**
+     * Update a client for the authenticated user if it still has the version named by the expected tags.
+     * Without tags, the version in the client data (if any) must match the current one. Conflicts are
+     * reported rather than retried, the caller has to read the client again.
+     *
+     * @param expectedETags unquoted strong tags, or null to not check tags
+     * @throws com.curootest.clientback.exception.PreconditionFailedException if the client has another tag
+     * @throws com.curootest.clientback.exception.VersionConflictException if the client has another version
+     */
+    public Optional<ClientDTO> updateClient(Integer clientId, ClientDTO clientDTO, Set<String> expectedETags) {
+        Integer userId = securityService.getCurrentUserId();
+
+        ClientDTO updatedClient;
+        if (expectedETags != null) {
+            Long expectedVersion = ClientETags.versionOf(clientId, expectedETags);
+            if (expectedVersion == null) {
+                throw new PreconditionFailedException("If-Match does not name a version of this client.");
+            }
+            try {
+                updatedClient = clientRepository.updateClientByUserId(clientId, clientDTO, userId, expectedVersion);
+            } catch (VersionConflictException | OptimisticLockingFailureException e) {
+                throw new PreconditionFailedException("Client has been modified since it was last read.");
+            }
+        } else {
+            updatedClient = clientRepository.updateClientByUserId(clientId, clientDTO, userId,
+                    clientDTO.getVersion());
         }
 
-        ClientDTO updatedClient = clientRepository.updateClientByUserEmail(clientId, clientDTO, userEmail);
-        if (updatedClient != null) {
-            logger.info("Client ID: {} updated successfully for user: {}", clientId, userEmail);
-            return Optional.of(updatedClient);
-        } else {
-            logger.error("Failed to update client ID: {} for user: {}", clientId, userEmail);
+        if (updatedClient == null) {
+            logger.debug("Client ID: {} not found or doesn't belong to user: {}", clientId, userId);
             return Optional.empty();
         }
+
+        clientChangeFeed.publish(userId, ClientChange.Type.UPDATED, clientId, updatedClient);
+        return Optional.of(updatedClient);
     }
 
     /**
      * Delete a client by ID for the authenticated user
      */
     public boolean deleteClient(Integer clientId) {
-        String userEmail = securityService.getCurrentUserEmail();
-        logger.info("Attempting to delete client ID: {} for user: {}", clientId, userEmail);
-
-        boolean deleted = clientRepository.deleteClientByUserEmail(clientId, userEmail);
-        logger.info("Client ID: {} deletion result for user {}: {}", clientId, userEmail, deleted);
+        Integer userId = securityService.getCurrentUserId();
+        boolean deleted = clientRepository.deleteClientByUserId(clientId, userId);
+        if (deleted) {
+            clientChangeFeed.publish(userId, ClientChange.Type.DELETED, clientId, null);
+        }
         return deleted;
     }
 }
@@ -0,0 +1,61 @@
+package com.curootest.clientback.domain.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.curootest.clientback.domain.ClientEventDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Appends published events to a local file as JSON lines, synced to disk before the batch leaves the outbox
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "file")
+public class FileClientEventSink implements ClientEventSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    public FileClientEventSink(@Value("${outbox.file.path:client-events.jsonl}") String path,
+            ObjectMapper objectMapper) {
+        this.path = Path.of(path);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(List<ClientEventDTO> events) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (ClientEventDTO event : events) {
+                lines.write(objectMapper.writeValueAsBytes(event));
+                lines.write('\n');
+            }
+
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Client events could not be written to " + path, e);
+        }
+    }
+}
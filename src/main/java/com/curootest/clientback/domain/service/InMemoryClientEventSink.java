@@ -0,0 +1,45 @@
+package com.curootest.clientback.domain.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.curootest.clientback.domain.ClientEventDTO;
+
+/**
+ * Keeps the most recent published events in memory, standing in for a broker in development and tests
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "memory", matchIfMissing = true)
+public class InMemoryClientEventSink implements ClientEventSink {
+
+    private final int capacity;
+    private final Deque<ClientEventDTO> events;
+
+    public InMemoryClientEventSink(@Value("${outbox.memory.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+        this.events = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public synchronized void publish(List<ClientEventDTO> published) {
+        for (ClientEventDTO event : published) {
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    /**
+     * Get the retained events, oldest first
+     */
+    public synchronized List<ClientEventDTO> getEvents() {
+        return new ArrayList<>(events);
+    }
+}
@@ -1,27 +1,92 @@
 package com.curootest.clientback.domain.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.curootest.clientback.config.CustomUserDetails;
+import com.curootest.clientback.config.JwtKeyRing;
+import com.curootest.clientback.domain.dto.TokenClaims;
+
 import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
+/**
+ * Issues ES256 tokens signed with the current key of the key ring, with its key ID in the header,
+ * so other services can verify them locally against the published JWKS.
+ */
 @Service
 public class JwtService {
 
-    @Value("${security.jwt.token.secret-key}")
-    private String secretKey;
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String TOKEN_TYPE_CLAIM = "token_use";
+    public static final String FAMILY_CLAIM = "fam";
+    // The standard iat claim only has second precision, too coarse to tell a token from a revocation in its second
+    public static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
+
+    private final long jwtExpiration;
+    private final long refreshExpiration;
+
+    private final JwtKeyRing keyRing;
+    // Verifies the HMAC tokens issued before the switch to ES256 until they expire, null when not configured
+    private final Key legacyKey;
+    // Immutable and thread-safe, so it is built once instead of per token
+    private final JwtParser parser;
+
+    public JwtService(
+            JwtKeyRing keyRing,
+            @Value("${security.jwt.token.secret-key:}") String legacySecretKey,
+            @Value("${security.jwt.token.expire-length}") long jwtExpiration,
+            @Value("${security.jwt.refresh-token.expire-length:1209600000}") long refreshExpiration) {
+        this.keyRing = keyRing;
+        this.jwtExpiration = jwtExpiration;
+        this.refreshExpiration = refreshExpiration;
+        this.legacyKey = legacySecretKey.isBlank()
+                ? null
+                : Keys.hmacShaKeyFor(Decoders.BASE64.decode(legacySecretKey));
+        this.parser = Jwts
+                .parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return verificationKey(header);
+                    }
+                })
+                .build();
+    }
 
-    @Value("${security.jwt.token.expire-length}")
-    private long jwtExpiration;
+    /**
+     * Parses and verifies a token exactly once
+     *
+     * @return the verified claims of the token
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
+     */
+    public TokenClaims validateToken(String token) {
+        final Claims claims = extractAllClaims(token);
+        return new TokenClaims(
+                claims.getId(),
+                claims.get(FAMILY_CLAIM, String.class),
+                typeOf(claims),
+                claims.getSubject(),
+                claims.get(USER_ID_CLAIM, Integer.class),
+                issuedAtOf(claims),
+                toInstant(claims.getExpiration()));
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -32,56 +97,122 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Generate a short-lived access token
+     */
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        return generateToken(TokenClaims.Type.ACCESS, userDetails.getUsername(), userIdOf(userDetails));
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+        return buildToken(extraClaims, TokenClaims.Type.ACCESS, userDetails.getUsername(), userIdOf(userDetails),
+                UUID.randomUUID());
+    }
+
+    /**
+     * Generate a token for an already authenticated subject, e.g. when rotating a refresh token
+     */
+    public String generateToken(TokenClaims.Type type, String subject, Integer userId) {
+        return buildToken(new HashMap<>(), type, subject, userId, UUID.randomUUID());
+    }
+
+    /**
+     * Generate a refresh token with a known ID in a refresh token family, so the family can be moved on to it
+     * before it is handed out
+     */
+    public String generateRefreshToken(String subject, Integer userId, UUID tokenId, UUID familyId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(FAMILY_CLAIM, familyId.toString());
+        return buildToken(claims, TokenClaims.Type.REFRESH, subject, userId, tokenId);
     }
 
     public long getExpirationTime() {
         return jwtExpiration;
     }
 
+    public long getRefreshExpirationTime() {
+        return refreshExpiration;
+    }
+
     private String buildToken(
             Map<String, Object> extraClaims,
-            UserDetails userDetails,
-            long expiration) {
+            TokenClaims.Type type,
+            String subject,
+            Integer userId,
+            UUID tokenId) {
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        // Carry the numeric user ID so ownership checks don't need to resolve the email
+        if (userId != null) {
+            claims.put(USER_ID_CLAIM, userId);
+        }
+        claims.put(TOKEN_TYPE_CLAIM, type.name().toLowerCase());
+        long now = System.currentTimeMillis();
+        claims.put(ISSUED_AT_MILLIS_CLAIM, now);
+        long expiration = type == TokenClaims.Type.REFRESH ? refreshExpiration : jwtExpiration;
+        JwtKeyRing.SigningKey signingKey = keyRing.signingKey();
         return Jwts
                 .builder()
-                .setClaims(extraClaims)
-                .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey())
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.getKeyId())
+                .setClaims(claims)
+                // Every token gets its own ID so it can be revoked on its own
+                .setId(tokenId.toString())
+                .setSubject(subject)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
+                .signWith(signingKey.getPrivateKey(), SignatureAlgorithm.ES256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        final TokenClaims claims = validateToken(token);
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.isExpired();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Claims extractAllClaims(String token) {
+        return parser
+                .parseClaimsJws(token)
+                .getBody();
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Pick the key by the header, so a token can't choose an HMAC algorithm to be verified with a public key
+     */
+    private Key verificationKey(JwsHeader<?> header) {
+        String algorithm = header.getAlgorithm();
+        if (SignatureAlgorithm.ES256.getValue().equals(algorithm)) {
+            Key key = keyRing.verificationKey(header.getKeyId());
+            if (key == null) {
+                throw new SignatureException("Unknown signing key " + header.getKeyId());
+            }
+            return key;
+        }
+        if (legacyKey != null && algorithm != null && algorithm.startsWith("HS")) {
+            return legacyKey;
+        }
+        throw new UnsupportedJwtException("Unsupported signing algorithm " + algorithm);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static Integer userIdOf(UserDetails userDetails) {
+        return userDetails instanceof CustomUserDetails customUserDetails ? customUserDetails.getUserId() : null;
+    }
+
+    /**
+     * Tokens issued before refresh tokens existed carry no type and are access tokens
+     */
+    private static TokenClaims.Type typeOf(Claims claims) {
+        String type = claims.get(TOKEN_TYPE_CLAIM, String.class);
+        return "refresh".equals(type) ? TokenClaims.Type.REFRESH : TokenClaims.Type.ACCESS;
+    }
+
+    /**
+     * Millisecond issue time, or the start of the iat second for tokens issued without it
+     */
+    private static Instant issuedAtOf(Claims claims) {
+        Long issuedAtMillis = claims.get(ISSUED_AT_MILLIS_CLAIM, Long.class);
+        return issuedAtMillis != null ? Instant.ofEpochMilli(issuedAtMillis) : toInstant(claims.getIssuedAt());
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static Instant toInstant(Date date) {
+        return date != null ? date.toInstant() : null;
     }
 }
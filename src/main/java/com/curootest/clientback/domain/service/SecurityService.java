@@ -5,6 +5,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.curootest.clientback.config.CustomUserDetails;
+
 /**
  * Service for handling security-related operations in the domain layer
  */
@@ -35,6 +37,27 @@ public class SecurityService {
         throw new RuntimeException("Unable to extract user email from authentication context");
     }
 
+    /**
+     * Gets the ID of the currently authenticated user, as carried by the principal
+     * 
+     * @return the ID of the authenticated user
+     * @throws RuntimeException if no user is authenticated
+     */
+    public Integer getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new RuntimeException("No authenticated user found");
+        }
+
+        if (authentication.getPrincipal() instanceof CustomUserDetails userDetails
+                && userDetails.getUserId() != null) {
+            return userDetails.getUserId();
+        }
+
+        throw new RuntimeException("Unable to extract user ID from authentication context");
+    }
+
     /**
      * Checks if there is a currently authenticated user
      * 
@@ -1,30 +1,52 @@
 package com.curootest.clientback.domain.service;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import com.curootest.clientback.config.CustomUserDetails;
+import com.curootest.clientback.config.JwtPrincipalCache;
+import com.curootest.clientback.config.TokenDenylist;
 import com.curootest.clientback.domain.UserDTO;
+import com.curootest.clientback.domain.dto.LoginResponse;
+import com.curootest.clientback.domain.dto.TokenClaims;
+import com.curootest.clientback.domain.repository.RefreshTokenDTORepository;
 import com.curootest.clientback.domain.repository.UserDTORepository;
 import com.curootest.clientback.exception.InvalidPasswordException;
 import com.curootest.clientback.exception.UserAlreadyExistsException;
 
+import io.jsonwebtoken.JwtException;
+
 @Service
 public class UserService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
     @Autowired
     private UserDTORepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private RefreshTokenDTORepository refreshTokenRepository;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private JwtPrincipalCache principalCache;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
     // Method to get a user by ID
     public Optional<UserDTO> getUserById(String id) {
         return userRepository.getById(id);
@@ -42,46 +64,164 @@ public class UserService {
 
     // Method to delete a user by ID
     public void deleteUserById(String id) {
+        userRepository.getById(id).ifPresent(user -> {
+            tokenDenylist.revokeUser(Integer.valueOf(user.getId()));
+            refreshTokenRepository.revokeUser(Integer.valueOf(user.getId()));
+            principalCache.invalidateUser(user.getEmail());
+        });
         userRepository.deleteUserById(id);
         return;
     }
 
     public UserDTO register(UserDTO userDTO) {
-        if (userRepository.findByEmail(userDTO.getEmail()).isPresent()) {
+        if (userRepository.findCurrentByEmail(userDTO.getEmail()).isPresent()) {
             throw new UserAlreadyExistsException("User with this email already exists.");
         }
         if (userDTO.getPassword() == null || userDTO.getPassword().length() < 6) {
             throw new InvalidPasswordException("Password must be at least 6 characters long.");
         }
-        userDTO.setPassword(passwordEncoder.encode(userDTO.getPassword()));
+        userDTO.setPassword(passwordHashingService.encode(userDTO.getPassword()));
         return userRepository.saveUser(userDTO);
     }
 
-    public Optional<String> login(String email, String password) {
-        Optional<UserDTO> userOptional = userRepository.findByEmail(email);
+    public Optional<LoginResponse> login(String email, String password) {
+        // From the primary, so a login right after registering or changing the password sees the change
+        Optional<UserDTO> userOptional = userRepository.findCurrentByEmail(email);
         if (userOptional.isPresent()) {
             UserDTO user = userOptional.get();
-            if (passwordEncoder.matches(password, user.getPassword())) {
-                return Optional.of(jwtService.generateToken(new CustomUserDetails(user)));
+            if (passwordHashingService.matches(password, user.getPassword())) {
+                CustomUserDetails userDetails = new CustomUserDetails(user);
+                UUID familyId = UUID.randomUUID();
+                UUID refreshTokenId = UUID.randomUUID();
+                refreshTokenRepository.startFamily(familyId, userDetails.getUserId(), refreshTokenId,
+                        refreshExpiresAt());
+                return Optional.of(issueTokens(userDetails.getUsername(), userDetails.getUserId(), familyId,
+                        refreshTokenId));
             }
         }
         return Optional.empty();
     }
 
+    /**
+     * Exchange a refresh token for a new token pair without a password check. The token must be the current
+     * one of its family on the primary database, so each refresh token can be used once on any instance;
+     * presenting an older one of a live family means it may have leaked, so every token of the user is revoked.
+     */
+    public Optional<LoginResponse> refresh(String refreshToken) {
+        TokenClaims claims = parseToken(refreshToken);
+        if (claims == null || claims.getType() != TokenClaims.Type.REFRESH || claims.getSubject() == null
+                || claims.getUserId() == null) {
+            return Optional.empty();
+        }
+        UUID familyId = parseUuid(claims.getFamilyId());
+        UUID tokenId = parseUuid(claims.getTokenId());
+        if (familyId == null || tokenId == null) {
+            // Issued before families were tracked
+            return Optional.empty();
+        }
+
+        UUID newTokenId = UUID.randomUUID();
+        if (!refreshTokenRepository.rotate(familyId, tokenId, newTokenId, refreshExpiresAt())) {
+            if (refreshTokenRepository.revokeFamily(familyId)) {
+                logger.warn("Refresh token reuse for user ID: {}, revoking all of its tokens", claims.getUserId());
+                refreshTokenRepository.revokeUser(claims.getUserId());
+                tokenDenylist.revokeUser(claims.getUserId());
+                principalCache.invalidateUser(claims.getSubject());
+            }
+            return Optional.empty();
+        }
+        return Optional.of(issueTokens(claims.getSubject(), claims.getUserId(), familyId, newTokenId));
+    }
+
+    /**
+     * Revoke the given tokens: the access token until it expires, the refresh token with its whole family.
+     * Invalid or expired tokens are ignored.
+     */
+    public void logout(String accessToken, String refreshToken) {
+        // The long-lived refresh token first, a full denylist only fails the access token
+        TokenClaims refreshClaims = parseToken(refreshToken);
+        UUID familyId = refreshClaims != null ? parseUuid(refreshClaims.getFamilyId()) : null;
+        if (familyId != null) {
+            refreshTokenRepository.revokeFamily(familyId);
+        }
+        TokenClaims accessClaims = parseToken(accessToken);
+        if (accessClaims != null) {
+            tokenDenylist.revoke(accessClaims);
+            principalCache.invalidate(accessToken);
+        }
+    }
+
     public Optional<UserDTO> update(int userId, UserDTO userDTO) {
         return userRepository.getById(String.valueOf(userId))
                 .map(existingUser -> {
+                    String previousEmail = existingUser.getEmail();
                     if (userDTO.getPassword() != null && userDTO.getPassword().length() < 6) {
                         throw new InvalidPasswordException("Password must be at least 6 characters long.");
                     }
                     if (userDTO.getPassword() != null) {
-                        existingUser.setPassword(passwordEncoder.encode(userDTO.getPassword()));
+                        existingUser.setPassword(passwordHashingService.encode(userDTO.getPassword()));
                     }
                     existingUser.setName(userDTO.getName());
                     existingUser.setSurname(userDTO.getSurname());
                     existingUser.setEmail(userDTO.getEmail());
                     existingUser.setMobilePhone(userDTO.getMobilePhone());
-                    return userRepository.saveUser(existingUser);
+                    if (userDTO.getVersion() != null) {
+                        // Saving with the version the caller read fails with a 409 if the user changed since
+                        existingUser.setVersion(userDTO.getVersion());
+                    }
+                    UserDTO savedUser = userRepository.saveUser(existingUser);
+                    // A new password or email ends every session opened with the old credentials
+                    if (userDTO.getPassword() != null || !previousEmail.equals(savedUser.getEmail())) {
+                        tokenDenylist.revokeUser(userId);
+                        refreshTokenRepository.revokeUser(userId);
+                    }
+                    // Tokens issued before the update must not keep serving the stale principal
+                    principalCache.invalidateUser(previousEmail);
+                    return savedUser;
                 });
     }
+
+    /**
+     * Delete the refresh token families that can no longer be used
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.refresh-token.purge-interval-ms:3600000}")
+    public void purgeExpiredRefreshTokens() {
+        int deleted = refreshTokenRepository.deleteExpired();
+        if (deleted > 0) {
+            logger.debug("Deleted {} expired refresh token families", deleted);
+        }
+    }
+
+    private LoginResponse issueTokens(String subject, Integer userId, UUID familyId, UUID refreshTokenId) {
+        return new LoginResponse(
+                jwtService.generateToken(TokenClaims.Type.ACCESS, subject, userId),
+                jwtService.generateRefreshToken(subject, userId, refreshTokenId, familyId),
+                jwtService.getExpirationTime() / 1000);
+    }
+
+    private Instant refreshExpiresAt() {
+        return Instant.now().plusMillis(jwtService.getRefreshExpirationTime());
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private TokenClaims parseToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            return jwtService.validateToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
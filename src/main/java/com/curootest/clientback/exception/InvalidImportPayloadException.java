@@ -0,0 +1,7 @@
+package com.curootest.clientback.exception;
+
+public class InvalidImportPayloadException extends RuntimeException {
+    public InvalidImportPayloadException(String message) {
+        super(message);
+    }
+}
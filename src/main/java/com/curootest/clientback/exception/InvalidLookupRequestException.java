@@ -0,0 +1,7 @@
+package com.curootest.clientback.exception;
+
+public class InvalidLookupRequestException extends RuntimeException {
+    public InvalidLookupRequestException(String message) {
+        super(message);
+    }
+}
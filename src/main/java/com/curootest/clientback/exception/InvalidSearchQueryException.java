@@ -0,0 +1,7 @@
+package com.curootest.clientback.exception;
+
+public class InvalidSearchQueryException extends RuntimeException {
+    public InvalidSearchQueryException(String message) {
+        super(message);
+    }
+}
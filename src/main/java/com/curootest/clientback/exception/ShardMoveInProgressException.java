@@ -0,0 +1,14 @@
+package com.curootest.clientback.exception;
+
+public class ShardMoveInProgressException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ShardMoveInProgressException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,14 @@
+package com.curootest.clientback.exception;
+
+public class TokenRevocationUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TokenRevocationUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package com.curootest.clientback.exception;
+
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,147 @@
+package com.curootest.clientback.persistence;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.ClientEventDTO;
+import com.curootest.clientback.domain.repository.ClientEventDTORepository;
+import com.curootest.clientback.persistence.crud.ClientEventCrudRepository;
+import com.curootest.clientback.persistence.entity.Client;
+import com.curootest.clientback.persistence.entity.ClientEvent;
+import com.curootest.clientback.persistence.mapper.ClientMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Transactional outbox of client changes. Events are written in the transaction of the change,
+ * so they exist exactly when the change is committed, and are published later by the relay.
+ */
+@Repository
+public class ClientEventRepository implements ClientEventDTORepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientEventRepository.class);
+
+    @Autowired
+    private ClientEventCrudRepository clientEventCrudRepository;
+
+    @Autowired
+    private ClientMapper mapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Add an event for a client to the current transaction, snapshotting the client as it is now
+     */
+    public void record(ClientEventDTO.Type type, Client client) {
+        record(type, mapper.toClientDTO(client), client.getUserId().getUserId());
+    }
+
+    /**
+     * Add an event for a client to the current transaction, with the client as written by the caller
+     */
+    public void record(ClientEventDTO.Type type, ClientDTO client, Integer userId) {
+        ClientEvent event = new ClientEvent();
+        event.setEventType(type);
+        event.setClientId(Integer.valueOf(client.getId()));
+        event.setUserId(userId);
+        event.setPayload(toJson(client));
+        event.setOccurredAt(LocalDateTime.now());
+        entityManager.persist(event);
+    }
+
+    @Override
+    public List<ClientEventDTO> lockPending(int limit) {
+        List<ClientEvent> events = clientEventCrudRepository.lockOldest(limit);
+        List<ClientEventDTO> eventDTOs = new ArrayList<>(events.size());
+        for (ClientEvent event : events) {
+            ClientDTO client;
+            try {
+                client = fromJson(event.getPayload());
+            } catch (IllegalStateException e) {
+                // No retry can read it, and it would hold back every later event
+                logger.error("Client event {} could not be read, moving it to the dead letters", event.getEventId(), e);
+                clientEventCrudRepository.moveToDeadLetters(event.getEventId(), e.getCause().getMessage());
+                countDeadLetteredAfterCommit("unreadable");
+                continue;
+            }
+            ClientEventDTO eventDTO = new ClientEventDTO();
+            eventDTO.setEventId(event.getEventId());
+            eventDTO.setType(event.getEventType());
+            eventDTO.setClientId(event.getClientId());
+            eventDTO.setUserId(event.getUserId());
+            eventDTO.setClient(client);
+            eventDTO.setOccurredAt(event.getOccurredAt());
+            eventDTOs.add(eventDTO);
+        }
+        return eventDTOs;
+    }
+
+    @Override
+    public void deleteEvents(List<Long> eventIds) {
+        clientEventCrudRepository.deleteAllById(eventIds);
+    }
+
+    @Override
+    public int recordFailure(Long eventId) {
+        ClientEvent event = entityManager.find(ClientEvent.class, eventId);
+        event.setAttempts(event.getAttempts() + 1);
+        return event.getAttempts();
+    }
+
+    @Override
+    public void deadLetter(Long eventId, String error) {
+        clientEventCrudRepository.moveToDeadLetters(eventId, error);
+        countDeadLetteredAfterCommit("rejected");
+    }
+
+    private void countDeadLetteredAfterCommit(String reason) {
+        Counter counter = Counter.builder("outbox.events.dead_lettered").tag("reason", reason).register(meterRegistry);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.increment();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counter.increment();
+            }
+        });
+    }
+
+    private String toJson(ClientDTO clientDTO) {
+        try {
+            return objectMapper.writeValueAsString(clientDTO);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Client snapshot could not be serialized", e);
+        }
+    }
+
+    private ClientDTO fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, ClientDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Client snapshot could not be read", e);
+        }
+    }
+}
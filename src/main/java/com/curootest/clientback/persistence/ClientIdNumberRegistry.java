@@ -0,0 +1,29 @@
+package com.curootest.clientback.persistence;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Claims on client ID numbers across databases, where a unique constraint no longer covers every client.
+ * A client is only written after its ID number has been claimed for its owner.
+ */
+public interface ClientIdNumberRegistry {
+
+    /**
+     * Claim the ID numbers for the user. Inside a transaction the claims are released again if it rolls back.
+     *
+     * @return the ID numbers that were free and are now claimed, the others are taken
+     */
+    Set<String> reserve(Collection<String> idNumbers, Integer userId);
+
+    /**
+     * Release the user's claims on the ID numbers once the current transaction commits, or right away
+     * outside a transaction
+     */
+    void releaseAfterCommit(Collection<String> idNumbers, Integer userId);
+
+    /**
+     * Release the user's claims on the ID numbers right away
+     */
+    void release(Collection<String> idNumbers, Integer userId);
+}
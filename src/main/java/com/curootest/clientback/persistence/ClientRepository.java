@@ -1,23 +1,51 @@
 package com.curootest.clientback.persistence;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.ClientEventDTO;
+import com.curootest.clientback.domain.dto.BulkImportResult;
+import com.curootest.clientback.domain.dto.BulkImportRow;
 import com.curootest.clientback.domain.repository.ClientDTORepository;
+import com.curootest.clientback.exception.VersionConflictException;
 import com.curootest.clientback.persistence.crud.ClientCrudRepository;
-import com.curootest.clientback.persistence.crud.UserCrudRepository;
+import com.curootest.clientback.persistence.entity.CacheRegions;
 import com.curootest.clientback.persistence.entity.Client;
 import com.curootest.clientback.persistence.entity.User;
 import com.curootest.clientback.persistence.mapper.ClientMapper;
 
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Query;
+
 /**
  * Repository implementation for client data operations
  * All operations are user-specific for data isolation
@@ -27,98 +55,351 @@ public class ClientRepository implements ClientDTORepository {
 
     private static final Logger logger = LoggerFactory.getLogger(ClientRepository.class);
 
+    private static final String UPDATE_CLIENT = """
+            UPDATE clients c
+            SET id_type = :idType, id_number = :idNumber, name = :name, surname = :surname,
+                modification_date = CURRENT_TIMESTAMP, version = c.version + 1
+            FROM clients previous
+            WHERE c.client_id = :clientId AND c.user_id = :userId AND previous.client_id = c.client_id
+            """;
+
+    private static final String AND_VERSION = "AND c.version = :expectedVersion\n";
+
+    // The self-join reads the row as it was before the update, so a replaced ID number can be released
+    private static final String RETURNING_UPDATED = """
+            RETURNING c.client_id, c.name, c.surname, c.id_type, c.id_number, c.version, previous.id_number
+            """;
+
+    private static final String DELETE_CLIENT = """
+            DELETE FROM clients
+            WHERE client_id = :clientId AND user_id = :userId
+            RETURNING client_id, name, surname, id_type, id_number, version
+            """;
+
     @Autowired
     private ClientCrudRepository clientCrudRepository;
 
     @Autowired
-    private UserCrudRepository userCrudRepository;
+    private ClientMapper mapper;
 
     @Autowired
-    private ClientMapper mapper;
+    private ClientEventRepository clientEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Only when clients are sharded, otherwise the unique constraint on id_number covers every client
+    @Autowired(required = false)
+    private ClientIdNumberRegistry idNumberRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Override
-    public List<ClientDTO> getAllByUserEmail(String userEmail) {
-        List<Client> clients = clientCrudRepository.findByUserEmail(userEmail);
-        return mapper.toClientDTOs(clients);
+    @Transactional(readOnly = true)
+    public List<ClientDTO> getAllByUserId(Integer userId) {
+        return clientCrudRepository.findByUserId(userId);
     }
 
     @Override
-    public Optional<ClientDTO> getByIdNumberAndUserEmail(String idType, String idNumber, String userEmail) {
-        return clientCrudRepository.findByIdTypeAndIdNumberAndUserEmail(idType, idNumber, userEmail)
-                .map(mapper::toClientDTO);
+    @Transactional(readOnly = true)
+    public String getFingerprintByUserId(Integer userId) {
+        return clientCrudRepository.fingerprintByUserId(userId);
     }
 
     @Override
-    public ClientDTO saveClient(ClientDTO clientDTO, String userEmail) {
-        logger.info("Saving client for user: {}", userEmail);
-        Client client = mapper.toClient(clientDTO);
+    @Transactional(readOnly = true)
+    public List<ClientDTO> getPageByUserId(Integer userId, Integer afterId, int limit) {
+        return clientCrudRepository.findPageByUserId(userId, afterId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ClientDTO> searchByUserId(Integer userId, String query, Integer afterId, int limit) {
+        // Match the query literally, '!' is the escape character declared in the query
+        String pattern = "%" + query.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        return clientCrudRepository.searchPageByUserId(userId, pattern, afterId, PageRequest.of(0, limit));
+    }
 
-        // Find and set the user
-        Optional<User> userOpt = userCrudRepository.findByEmail(userEmail);
-        if (userOpt.isEmpty()) {
-            logger.error("User not found with email: {}", userEmail);
-            throw new RuntimeException("User not found with email: " + userEmail);
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllByUserId(Integer userId, Consumer<ClientDTO> consumer) {
+        // Rows are projected into DTOs, so the persistence context stays empty regardless of the result size
+        try (Stream<ClientDTO> clients = clientCrudRepository.streamByUserId(userId)) {
+            clients.forEach(consumer);
         }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ClientDTO> getByIdNumberAndUserId(String idType, String idNumber, Integer userId) {
+        return clientCrudRepository.findByIdTypeAndIdNumberAndUserId(idType, idNumber, userId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ClientDTO> getByIdNumbersAndUserId(Collection<String> idNumbers, Integer userId) {
+        return clientCrudRepository.findByIdNumberInAndUserId(idNumbers, userId);
+    }
 
-        User user = userOpt.get();
-        logger.info("Found user with ID: {} for email: {}", user.getUserId(), userEmail);
+    @Override
+    @Transactional
+    public ClientDTO saveClient(ClientDTO clientDTO, Integer userId) {
+        reserveIdNumber(clientDTO.getIdNumber(), userId);
+        Client client = mapper.toClient(clientDTO);
 
-        client.setUserId(user);
+        // The owner is only referenced by ID, so no user lookup is needed
+        client.setUserId(entityManager.getReference(User.class, userId));
         client.setCreationDate(LocalDateTime.now());
         client.setModificationDate(LocalDateTime.now());
 
-        logger.info("Client before save - user set: {}", client.getUserId() != null);
-
         Client savedClient = clientCrudRepository.save(client);
-        logger.info("Client saved with ID: {} and user_id: {}", savedClient.getClientId(),
-                savedClient.getUserId() != null ? savedClient.getUserId().getUserId() : "NULL");
-
+        clientEventRepository.record(ClientEventDTO.Type.CREATED, savedClient);
         return mapper.toClientDTO(savedClient);
     }
 
     @Override
-    public boolean existsByIdAndUserEmail(Integer clientId, String userEmail) {
-        logger.info("Checking if client ID: {} exists for user: {}", clientId, userEmail);
-        return clientCrudRepository.existsByIdAndUserEmail(clientId, userEmail);
+    @Transactional
+    public ClientDTO updateClientByUserId(Integer clientId, ClientDTO clientDTO, Integer userId,
+            Long expectedVersion) {
+        // A single statement checks the owner and the version, bumps the version and returns the written row
+        Query update = entityManager
+                .createNativeQuery(expectedVersion != null ? UPDATE_CLIENT + AND_VERSION + RETURNING_UPDATED
+                        : UPDATE_CLIENT + RETURNING_UPDATED)
+                .setParameter("idType", clientDTO.getIdType())
+                .setParameter("idNumber", clientDTO.getIdNumber())
+                .setParameter("name", clientDTO.getName())
+                .setParameter("surname", clientDTO.getSurname())
+                .setParameter("clientId", clientId)
+                .setParameter("userId", userId);
+        if (expectedVersion != null) {
+            update.setParameter("expectedVersion", expectedVersion);
+        }
+        List<?> rows = update.getResultList();
+        if (rows.isEmpty()) {
+            // Only a missed update pays for telling a stale version apart from a missing client
+            if (expectedVersion != null && clientCrudRepository.existsByIdAndUserId(clientId, userId)) {
+                logger.debug("Client ID: {} is not at the expected version {}", clientId, expectedVersion);
+                throw new VersionConflictException("Client has been modified since it was last read.");
+            }
+            logger.debug("Client ID: {} not found for user: {}", clientId, userId);
+            return null;
+        }
+
+        Object[] row = (Object[]) rows.get(0);
+        ClientDTO updated = toClientDTO(row);
+        String previousIdNumber = (String) row[6];
+        if (idNumberRegistry != null && !Objects.equals(previousIdNumber, updated.getIdNumber())) {
+            // Claimed after the shard row is written, a taken number rolls the update back
+            reserveIdNumber(updated.getIdNumber(), userId);
+            idNumberRegistry.releaseAfterCommit(List.of(previousIdNumber), userId);
+        }
+
+        evictAfterWrite(clientId);
+        clientEventRepository.record(ClientEventDTO.Type.UPDATED, updated, userId);
+        return updated;
     }
 
     @Override
-    public ClientDTO updateClientByUserEmail(Integer clientId, ClientDTO clientDTO, String userEmail) {
-        logger.info("Updating client ID: {} for user: {}", clientId, userEmail);
+    @Transactional
+    public boolean deleteClientByUserId(Integer clientId, Integer userId) {
+        List<?> rows = entityManager.createNativeQuery(DELETE_CLIENT)
+                .setParameter("clientId", clientId)
+                .setParameter("userId", userId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            logger.debug("Client ID: {} not found for user: {}", clientId, userId);
+            return false;
+        }
 
-        Optional<Client> existingClientOpt = clientCrudRepository.findByIdAndUserEmail(clientId, userEmail);
-        if (existingClientOpt.isEmpty()) {
-            logger.warn("Client ID: {} not found for user: {}", clientId, userEmail);
-            return null;
+        ClientDTO deleted = toClientDTO((Object[]) rows.get(0));
+        evictAfterWrite(clientId);
+        clientEventRepository.record(ClientEventDTO.Type.DELETED, deleted, userId);
+        if (idNumberRegistry != null) {
+            idNumberRegistry.releaseAfterCommit(List.of(deleted.getIdNumber()), userId);
         }
+        return true;
+    }
 
-        Client existingClient = existingClientOpt.get();
+    /**
+     * Claim the ID number in the registry, if any, before the client is written with it
+     *
+     * @throws DuplicateKeyException if another client has the ID number
+     */
+    private void reserveIdNumber(String idNumber, Integer userId) {
+        if (idNumberRegistry != null && idNumber != null
+                && idNumberRegistry.reserve(List.of(idNumber), userId).isEmpty()) {
+            throw new DuplicateKeyException("A client with ID number " + idNumber + " already exists");
+        }
+    }
 
-        // Update fields
-        existingClient.setName(clientDTO.getName());
-        existingClient.setSurname(clientDTO.getSurname());
-        existingClient.setIdType(clientDTO.getIdType());
-        existingClient.setIdNumber(clientDTO.getIdNumber());
-        existingClient.setModificationDate(LocalDateTime.now());
+    /**
+     * Map a row returned by {@link #UPDATE_CLIENT} or {@link #DELETE_CLIENT}
+     */
+    private static ClientDTO toClientDTO(Object[] row) {
+        return new ClientDTO(((Number) row[0]).intValue(), (String) row[1], (String) row[2], (String) row[3],
+                (String) row[4], ((Number) row[5]).longValue());
+    }
 
-        Client updatedClient = clientCrudRepository.save(existingClient);
-        logger.info("Client ID: {} updated successfully for user: {}", clientId, userEmail);
+    /**
+     * Drop the written client from the second-level cache. Hibernate doesn't see native statements,
+     * so only this entry and the cached client queries are invalidated rather than the whole region.
+     * Evicting again once the transaction ends discards a copy of the old row cached in between.
+     */
+    private void evictAfterWrite(Integer clientId) {
+        evictClient(clientId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                evictClient(clientId);
+            }
+        });
+    }
 
-        return mapper.toClientDTO(updatedClient);
+    private void evictClient(Integer clientId) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(Client.class, clientId);
+        cache.unwrap(org.hibernate.Cache.class).evictQueryRegion(CacheRegions.CLIENT_QUERIES);
     }
 
     @Override
-    public boolean deleteClientByUserEmail(Integer clientId, String userEmail) {
-        logger.info("Deleting client ID: {} for user: {}", clientId, userEmail);
+    public BulkImportResult importClients(Iterator<ClientDTO> clients, Integer userId, int batchSize) {
+        BulkImportResult result = new BulkImportResult();
+        Set<String> seenIdNumbers = new HashSet<>();
+        List<ClientDTO> batch = new ArrayList<>(batchSize);
+        int firstIndex = 0;
 
-        Optional<Client> clientOpt = clientCrudRepository.findByIdAndUserEmail(clientId, userEmail);
-        if (clientOpt.isEmpty()) {
-            logger.warn("Client ID: {} not found for user: {}", clientId, userEmail);
-            return false;
+        while (clients.hasNext()) {
+            batch.add(clients.next());
+            if (batch.size() == batchSize) {
+                importBatch(batch, firstIndex, userId, seenIdNumbers, result);
+                firstIndex += batch.size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, firstIndex, userId, seenIdNumbers, result);
         }
 
-        clientCrudRepository.delete(clientOpt.get());
-        logger.info("Client ID: {} deleted successfully for user: {}", clientId, userEmail);
-        return true;
+        logger.info("Imported {} clients for user: {} ({} duplicates, {} rejected)",
+                result.getCreated(), userId, result.getDuplicates(), result.getRejected());
+        return result;
+    }
+
+    private void importBatch(List<ClientDTO> batch, int firstIndex, Integer userId, Set<String> seenIdNumbers,
+            BulkImportResult result) {
+        BulkImportRow[] rows = new BulkImportRow[batch.size()];
+
+        Set<String> batchIdNumbers = new HashSet<>();
+        for (ClientDTO clientDTO : batch) {
+            if (clientDTO != null && clientDTO.getIdNumber() != null) {
+                batchIdNumbers.add(clientDTO.getIdNumber());
+            }
+        }
+        Set<String> existingIdNumbers = batchIdNumbers.isEmpty()
+                ? Set.of()
+                : new HashSet<>(clientCrudRepository.findExistingIdNumbers(batchIdNumbers));
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            ClientDTO clientDTO = batch.get(i);
+            int index = firstIndex + i;
+            if (!isComplete(clientDTO)) {
+                rows[i] = BulkImportRow.rejected(index, clientDTO != null ? clientDTO.getIdNumber() : null,
+                        BulkImportRow.Status.INVALID, "idType, idNumber, name and surname are required");
+            } else if (existingIdNumbers.contains(clientDTO.getIdNumber())
+                    || !seenIdNumbers.add(clientDTO.getIdNumber())) {
+                rows[i] = BulkImportRow.rejected(index, clientDTO.getIdNumber(),
+                        BulkImportRow.Status.DUPLICATE, "A client with this ID number already exists");
+            } else {
+                pending.add(i);
+            }
+        }
+
+        Set<String> reservedIdNumbers = Set.of();
+        if (idNumberRegistry != null && !pending.isEmpty()) {
+            List<String> pendingIdNumbers = new ArrayList<>(pending.size());
+            for (int position : pending) {
+                pendingIdNumbers.add(batch.get(position).getIdNumber());
+            }
+            reservedIdNumbers = idNumberRegistry.reserve(pendingIdNumbers, userId);
+            // Taken by a client on another shard
+            for (Iterator<Integer> positions = pending.iterator(); positions.hasNext();) {
+                int position = positions.next();
+                String idNumber = batch.get(position).getIdNumber();
+                if (!reservedIdNumbers.contains(idNumber)) {
+                    rows[position] = BulkImportRow.rejected(firstIndex + position, idNumber,
+                            BulkImportRow.Status.DUPLICATE, "A client with this ID number already exists");
+                    positions.remove();
+                }
+            }
+        }
+
+        try {
+            List<Client> saved = insertClients(batch, pending, userId);
+            for (int i = 0; i < pending.size(); i++) {
+                int position = pending.get(i);
+                rows[position] = BulkImportRow.created(firstIndex + position, saved.get(i).getIdNumber(),
+                        String.valueOf(saved.get(i).getClientId()));
+            }
+        } catch (PersistenceException | DataAccessException e) {
+            // A concurrent writer may have taken an ID number since the check, so isolate the offending rows
+            logger.warn("Batch insert failed for user ID: {}, retrying row by row", userId);
+            for (int position : pending) {
+                int index = firstIndex + position;
+                ClientDTO clientDTO = batch.get(position);
+                try {
+                    Client savedClient = insertClients(batch, List.of(position), userId).get(0);
+                    rows[position] = BulkImportRow.created(index, clientDTO.getIdNumber(),
+                            String.valueOf(savedClient.getClientId()));
+                } catch (PersistenceException | DataAccessException rowException) {
+                    rows[position] = BulkImportRow.rejected(index, clientDTO.getIdNumber(),
+                            BulkImportRow.Status.FAILED, "Client conflicts with existing data");
+                    if (reservedIdNumbers.contains(clientDTO.getIdNumber())) {
+                        idNumberRegistry.release(List.of(clientDTO.getIdNumber()), userId);
+                    }
+                }
+            }
+        }
+
+        for (BulkImportRow row : rows) {
+            result.addRow(row);
+        }
+    }
+
+    private List<Client> insertClients(List<ClientDTO> batch, List<Integer> positions, Integer userId) {
+        if (positions.isEmpty()) {
+            return List.of();
+        }
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            // Imported rows are not hot yet, keep them from evicting cached clients
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            User user = entityManager.getReference(User.class, userId);
+            LocalDateTime now = LocalDateTime.now();
+            List<Client> clients = new ArrayList<>(positions.size());
+            for (int position : positions) {
+                Client client = mapper.toClient(batch.get(position));
+                client.setClientId(null);
+                client.setUserId(user);
+                client.setCreationDate(now);
+                client.setModificationDate(now);
+                entityManager.persist(client);
+                clientEventRepository.record(ClientEventDTO.Type.CREATED, client);
+                clients.add(client);
+            }
+            // Sequence-allocated IDs let Hibernate send these inserts as JDBC batches
+            entityManager.flush();
+            entityManager.clear();
+            return clients;
+        });
+    }
+
+    private static boolean isComplete(ClientDTO clientDTO) {
+        return clientDTO != null
+                && clientDTO.getIdType() != null
+                && clientDTO.getIdNumber() != null
+                && clientDTO.getName() != null
+                && clientDTO.getSurname() != null;
     }
 }
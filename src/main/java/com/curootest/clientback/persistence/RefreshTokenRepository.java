@@ -0,0 +1,72 @@
+package com.curootest.clientback.persistence;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.curootest.clientback.domain.repository.RefreshTokenDTORepository;
+import com.curootest.clientback.persistence.crud.RefreshTokenFamilyCrudRepository;
+import com.curootest.clientback.persistence.entity.RefreshTokenFamily;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Refresh token families on the primary database, shared by every instance. Only refreshes, logins and
+ * logouts reach it; access tokens are checked against the in-memory denylist.
+ */
+@Repository
+public class RefreshTokenRepository implements RefreshTokenDTORepository {
+
+    @Autowired
+    private RefreshTokenFamilyCrudRepository refreshTokenFamilyCrudRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void startFamily(UUID familyId, Integer userId, UUID tokenId, Instant expiresAt) {
+        RefreshTokenFamily family = new RefreshTokenFamily();
+        family.setFamilyId(familyId);
+        family.setUserId(userId);
+        family.setTokenId(tokenId);
+        family.setExpiresAt(toLocalDateTime(expiresAt));
+        // Persisted rather than saved, an assigned ID would make save() look the family up first
+        entityManager.persist(family);
+    }
+
+    @Override
+    @Transactional
+    public boolean rotate(UUID familyId, UUID tokenId, UUID newTokenId, Instant expiresAt) {
+        return refreshTokenFamilyCrudRepository.rotate(familyId, tokenId, newTokenId, toLocalDateTime(expiresAt),
+                LocalDateTime.now()) == 1;
+    }
+
+    @Override
+    @Transactional
+    public boolean revokeFamily(UUID familyId) {
+        return refreshTokenFamilyCrudRepository.deleteFamily(familyId) > 0;
+    }
+
+    @Override
+    @Transactional
+    public void revokeUser(Integer userId) {
+        refreshTokenFamilyCrudRepository.deleteByUserId(userId);
+    }
+
+    @Override
+    @Transactional
+    public int deleteExpired() {
+        return refreshTokenFamilyCrudRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private static LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.curootest.clientback.domain.UserDTO;
 import com.curootest.clientback.domain.repository.UserDTORepository;
@@ -21,6 +22,7 @@ public class UserRepository implements UserDTORepository {
     @Autowired
     private UserMapper mapper;
 
+    // Read before every update and delete, so always from the primary to see the current version
     @Override
     public Optional<UserDTO> getById(String id) {
         Optional<User> user = userCrudRepository.findById(id);
@@ -29,6 +31,7 @@ public class UserRepository implements UserDTORepository {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<UserDTO> getAll() {
         List<User> users = (List<User>) userCrudRepository.findAll();
         return mapper.toUserDTOs(users);
@@ -46,9 +49,17 @@ public class UserRepository implements UserDTORepository {
         userCrudRepository.deleteById(id);
     }
 
+    // Runs for every uncached token, so it is served by a replica when there is one
     @Override
+    @Transactional(readOnly = true)
     public Optional<UserDTO> findByEmail(String email) {
         Optional<User> user = userCrudRepository.findByEmail(email);
         return user.map(mapper::toUserDTO);
     }
+
+    @Override
+    public Optional<UserDTO> findCurrentByEmail(String email) {
+        Optional<User> user = userCrudRepository.findByEmail(email);
+        return user.map(mapper::toUserDTO);
+    }
 }
@@ -1,64 +1,104 @@
 package com.curootest.clientback.persistence.crud;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.persistence.entity.CacheRegions;
 import com.curootest.clientback.persistence.entity.Client;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * JPA Repository for Client entity with user-specific queries
- * All queries include user filtering for data isolation and security
+ * All queries filter on the owning user_id column for data isolation and security,
+ * which needs no join to users and is served by the (user_id, ...) indexes.
+ * The listing and lookups are query-cached; they are invalidated whenever a client is written.
+ * Read queries select the DTO columns directly, so no entity is hydrated, snapshotted or dirty-checked.
  */
 public interface ClientCrudRepository extends CrudRepository<Client, Integer> {
 
+        String SELECT_CLIENT_DTO = "SELECT new com.curootest.clientback.domain.ClientDTO("
+                        + "c.clientId, c.name, c.surname, c.idType, c.idNumber, c.version) FROM Client c ";
+
         /**
          * Get all clients for a specific user
          */
-        @Query("SELECT c FROM Client c WHERE c.userId.email = :userEmail")
-        List<Client> findByUserEmail(@Param("userEmail") String userEmail);
+        @QueryHints({
+                        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.CLIENT_QUERIES) })
+        @Query(SELECT_CLIENT_DTO + "WHERE c.userId.userId = :userId ORDER BY c.clientId")
+        List<ClientDTO> findByUserId(@Param("userId") Integer userId);
 
         /**
-         * Get clients by ID type and ID number for a specific user
+         * Get a fingerprint of all clients of a specific user that changes whenever one of them is
+         * created, updated or deleted, as every update increments the client version
+         */
+        @Query(value = "SELECT md5(coalesce(string_agg(c.client_id || ':' || c.version, ',' ORDER BY c.client_id), '')) "
+                        + "FROM clients c WHERE c.user_id = :userId", nativeQuery = true)
+        String fingerprintByUserId(@Param("userId") Integer userId);
+
+        /**
+         * Get a page of clients for a specific user, ordered by ID and starting after the given client ID
          */
-        @Query("SELECT c FROM Client c WHERE c.idType = :idType AND c.idNumber = :idNumber AND c.userId.email = :userEmail")
-        Optional<Client> findByIdTypeAndIdNumberAndUserEmail(@Param("idType") String idType,
-                        @Param("idNumber") String idNumber, @Param("userEmail") String userEmail);
+        @Query(SELECT_CLIENT_DTO + "WHERE c.userId.userId = :userId AND c.clientId > :afterId ORDER BY c.clientId")
+        List<ClientDTO> findPageByUserId(@Param("userId") Integer userId, @Param("afterId") Integer afterId,
+                        Pageable pageable);
 
         /**
-         * Get client by ID for a specific user
+         * Stream all clients for a specific user, ordered by ID, fetching rows from a server-side cursor
+         */
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+        @Query(SELECT_CLIENT_DTO + "WHERE c.userId.userId = :userId ORDER BY c.clientId")
+        Stream<ClientDTO> streamByUserId(@Param("userId") Integer userId);
+
+        /**
+         * Get clients by ID type and ID number for a specific user
          */
-        @Query("SELECT c FROM Client c WHERE c.clientId = :clientId AND c.userId.email = :userEmail")
-        Optional<Client> findByClientIdAndUserEmail(@Param("clientId") Integer clientId,
-                        @Param("userEmail") String userEmail);
+        @QueryHints({
+                        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.CLIENT_QUERIES) })
+        @Query(SELECT_CLIENT_DTO + "WHERE c.idType = :idType AND c.idNumber = :idNumber AND c.userId.userId = :userId")
+        Optional<ClientDTO> findByIdTypeAndIdNumberAndUserId(@Param("idType") String idType,
+                        @Param("idNumber") String idNumber, @Param("userId") Integer userId);
 
         /**
-         * Get clients by name (case insensitive) for a specific user
+         * Search a page of clients for a specific user whose name, surname or ID number contains the pattern
+         * (case insensitive), ordered by ID and starting after the given client ID.
+         * ILIKE on these columns is served by the pg_trgm GIN indexes.
          */
-        @Query("SELECT c FROM Client c WHERE UPPER(c.name) LIKE UPPER(CONCAT('%', :name, '%')) AND c.userId.email = :userEmail")
-        List<Client> findByNameContainingIgnoreCaseAndUserEmail(@Param("name") String name,
-                        @Param("userEmail") String userEmail);
+        @Query(SELECT_CLIENT_DTO + "WHERE c.userId.userId = :userId AND c.clientId > :afterId "
+                        + "AND (c.name ILIKE :pattern ESCAPE '!' OR c.surname ILIKE :pattern ESCAPE '!' "
+                        + "OR c.idNumber ILIKE :pattern ESCAPE '!') ORDER BY c.clientId")
+        List<ClientDTO> searchPageByUserId(@Param("userId") Integer userId, @Param("pattern") String pattern,
+                        @Param("afterId") Integer afterId, Pageable pageable);
 
         /**
-         * Get clients by surname (case insensitive) for a specific user
+         * Get the clients of a specific user with any of the given ID numbers in a single query.
+         * ID numbers are unique, so the unique index resolves each one to at most one row.
          */
-        @Query("SELECT c FROM Client c WHERE UPPER(c.surname) LIKE UPPER(CONCAT('%', :surname, '%')) AND c.userId.email = :userEmail")
-        List<Client> findBySurnameContainingIgnoreCaseAndUserEmail(@Param("surname") String surname,
-                        @Param("userEmail") String userEmail);
+        @Query(SELECT_CLIENT_DTO + "WHERE c.userId.userId = :userId AND c.idNumber IN :idNumbers")
+        List<ClientDTO> findByIdNumberInAndUserId(@Param("idNumbers") Collection<String> idNumbers,
+                        @Param("userId") Integer userId);
 
         /**
-         * Check if client exists and belongs to user
+         * Check whether a client exists and belongs to a specific user
          */
-        @Query("SELECT COUNT(c) > 0 FROM Client c WHERE c.id = :clientId AND c.userId.email = :userEmail")
-        boolean existsByIdAndUserEmail(@Param("clientId") Integer clientId, @Param("userEmail") String userEmail);
+        @Query("SELECT COUNT(c) > 0 FROM Client c WHERE c.clientId = :clientId AND c.userId.userId = :userId")
+        boolean existsByIdAndUserId(@Param("clientId") Integer clientId, @Param("userId") Integer userId);
 
         /**
-         * Get client by ID for a specific user
+         * Get which of the given ID numbers are already taken by any client
          */
-        @Query("SELECT c FROM Client c WHERE c.id = :clientId AND c.userId.email = :userEmail")
-        Optional<Client> findByIdAndUserEmail(@Param("clientId") Integer clientId,
-                        @Param("userEmail") String userEmail);
+        @Query("SELECT c.idNumber FROM Client c WHERE c.idNumber IN :idNumbers")
+        List<String> findExistingIdNumbers(@Param("idNumbers") Collection<String> idNumbers);
 }
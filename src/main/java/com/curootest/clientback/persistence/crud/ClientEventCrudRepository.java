@@ -0,0 +1,35 @@
+package com.curootest.clientback.persistence.crud;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.curootest.clientback.persistence.entity.ClientEvent;
+
+/**
+ * JPA Repository for the client change outbox
+ */
+public interface ClientEventCrudRepository extends CrudRepository<ClientEvent, Long> {
+
+        /**
+         * Lock the oldest pending events; rows locked by another relay instance are skipped rather than waited for
+         */
+        @Query(value = "SELECT * FROM client_events ORDER BY event_id LIMIT :limit FOR UPDATE SKIP LOCKED",
+                        nativeQuery = true)
+        List<ClientEvent> lockOldest(@Param("limit") int limit);
+
+        /**
+         * Move an event from the outbox to the dead letters
+         */
+        @Modifying(flushAutomatically = true)
+        @Query(value = """
+                        WITH dead AS (DELETE FROM client_events WHERE event_id = :eventId RETURNING *)
+                        INSERT INTO client_events_dead (event_id, event_type, client_id, user_id, payload, occurred_at,
+                            attempts, error)
+                        SELECT event_id, event_type, client_id, user_id, payload, occurred_at, attempts, :error FROM dead
+                        """, nativeQuery = true)
+        int moveToDeadLetters(@Param("eventId") Long eventId, @Param("error") String error);
+}
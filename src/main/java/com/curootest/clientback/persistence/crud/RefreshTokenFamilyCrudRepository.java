@@ -0,0 +1,40 @@
+package com.curootest.clientback.persistence.crud;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.curootest.clientback.persistence.entity.RefreshTokenFamily;
+
+/**
+ * JPA Repository for refresh token families
+ */
+public interface RefreshTokenFamilyCrudRepository extends CrudRepository<RefreshTokenFamily, UUID> {
+
+        /**
+         * Replace the current token of a family, only if it is still the given one and has not expired;
+         * a single conditional UPDATE, so of two refreshes with the same token only one succeeds
+         */
+        @Modifying
+        @Query("UPDATE RefreshTokenFamily f SET f.tokenId = :newTokenId, f.expiresAt = :expiresAt "
+                        + "WHERE f.familyId = :familyId AND f.tokenId = :tokenId AND f.expiresAt > :now")
+        int rotate(@Param("familyId") UUID familyId, @Param("tokenId") UUID tokenId,
+                        @Param("newTokenId") UUID newTokenId, @Param("expiresAt") LocalDateTime expiresAt,
+                        @Param("now") LocalDateTime now);
+
+        @Modifying
+        @Query("DELETE FROM RefreshTokenFamily f WHERE f.familyId = :familyId")
+        int deleteFamily(@Param("familyId") UUID familyId);
+
+        @Modifying
+        @Query("DELETE FROM RefreshTokenFamily f WHERE f.userId = :userId")
+        int deleteByUserId(@Param("userId") Integer userId);
+
+        @Modifying
+        @Query("DELETE FROM RefreshTokenFamily f WHERE f.expiresAt <= :now")
+        int deleteExpired(@Param("now") LocalDateTime now);
+}
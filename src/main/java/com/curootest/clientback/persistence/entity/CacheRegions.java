@@ -0,0 +1,14 @@
+package com.curootest.clientback.persistence.entity;
+
+/**
+ * Second-level cache region names, sized and expired in application.conf
+ */
+public final class CacheRegions {
+
+    public static final String CLIENTS = "clients";
+    public static final String USERS = "users";
+    public static final String CLIENT_QUERIES = "client-queries";
+
+    private CacheRegions() {
+    }
+}
@@ -2,24 +2,41 @@ package com.curootest.clientback.persistence.entity;
 
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "clients")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.CLIENTS)
+@Table(name = "clients", indexes = {
+        @Index(name = "idx_clients_user_id_client_id", columnList = "user_id, client_id"),
+        @Index(name = "idx_clients_user_id_id_type_id_number", columnList = "user_id, id_type, id_number")
+})
 public class Client {
 
     @Id
-    @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
+    // A pooled sequence (rather than IDENTITY) lets Hibernate batch inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clients_client_id_seq")
+    @SequenceGenerator(name = "clients_client_id_seq", sequenceName = "clients_client_id_seq", allocationSize = 50)
     @Column(name = "client_id")
     private Integer clientId;
 
-    @ManyToOne
+    // Only the owner ID is needed, which a lazy proxy provides without loading the user row
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User userId;
 
@@ -38,6 +55,11 @@ public class Client {
     @Column(name = "modification_date")
     private LocalDateTime modificationDate;
 
+    // Checked and incremented by every update, so concurrent writers can't overwrite each other
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     public Integer getClientId() {
         return clientId;
     }
@@ -108,4 +130,12 @@ public class Client {
         this.modificationDate = modificationDate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
 }
@@ -0,0 +1,109 @@
+package com.curootest.clientback.persistence.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+import com.curootest.clientback.domain.ClientEventDTO;
+
+/**
+ * Outbox row describing a client change, written in the transaction of the change itself
+ * and removed once the relay has published it
+ */
+@Entity
+@Table(name = "client_events")
+public class ClientEvent {
+
+    @Id
+    // Pooled like client IDs, so the events of a bulk import are inserted in the same JDBC batches
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_events_event_id_seq")
+    @SequenceGenerator(name = "client_events_event_id_seq", sequenceName = "client_events_event_id_seq",
+            allocationSize = 50)
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 20)
+    private ClientEventDTO.Type eventType;
+
+    @Column(name = "client_id", nullable = false)
+    private Integer clientId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    // JSON snapshot of the client as of the change
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    // Failed publishing attempts of this event on its own, see ClientEventRelay
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public ClientEventDTO.Type getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(ClientEventDTO.Type eventType) {
+        this.eventType = eventType;
+    }
+
+    public Integer getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(Integer clientId) {
+        this.clientId = clientId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
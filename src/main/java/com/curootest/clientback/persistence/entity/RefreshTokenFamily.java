@@ -0,0 +1,64 @@
+package com.curootest.clientback.persistence.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Chain of refresh tokens started by a login, holding the ID of the only token of the chain that can still
+ * be exchanged
+ */
+@Entity
+@Table(name = "refresh_token_families")
+public class RefreshTokenFamily {
+
+    @Id
+    @Column(name = "family_id")
+    private UUID familyId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "token_id", nullable = false)
+    private UUID tokenId;
+
+    // Expiration of the current token, after which the family can be deleted
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public UUID getFamilyId() {
+        return familyId;
+    }
+
+    public void setFamilyId(UUID familyId) {
+        this.familyId = familyId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public UUID getTokenId() {
+        return tokenId;
+    }
+
+    public void setTokenId(UUID tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
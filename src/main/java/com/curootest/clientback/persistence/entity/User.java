@@ -4,6 +4,8 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.security.core.GrantedAuthority;
@@ -12,6 +14,8 @@ import org.springframework.security.core.userdetails.UserDetails;
 import jakarta.persistence.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.USERS)
 @Table(name = "users")
 public class User implements UserDetails {
 
@@ -40,6 +44,10 @@ public class User implements UserDetails {
     @Column(name = "modification_date")
     private LocalDateTime modificationDate;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     public Integer getUserId() {
         return userId;
     }
@@ -93,6 +101,14 @@ public class User implements UserDetails {
         this.modificationDate = LocalDateTime.now();
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public LocalDateTime getCreationDate() {
         return creationDate;
     }
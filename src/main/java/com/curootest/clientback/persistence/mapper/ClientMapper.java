@@ -17,7 +17,8 @@ public interface ClientMapper {
             @Mapping(target = "name", source = "client.name"),
             @Mapping(target = "surname", source = "client.surname"),
             @Mapping(target = "idType", source = "client.idType"),
-            @Mapping(target = "idNumber", source = "client.idNumber")
+            @Mapping(target = "idNumber", source = "client.idNumber"),
+            @Mapping(target = "version", source = "client.version")
     })
     ClientDTO toClientDTO(Client client);
 
@@ -33,7 +34,9 @@ public interface ClientMapper {
             @Mapping(target = "idNumber", source = "clientDTO.idNumber"),
             @Mapping(target = "creationDate", ignore = true),
             @Mapping(target = "modificationDate", ignore = true),
-            @Mapping(target = "userId", ignore = true)
+            @Mapping(target = "userId", ignore = true),
+            // New clients start at the initial version; updates check the expected version explicitly
+            @Mapping(target = "version", ignore = true)
     })
     Client toClient(ClientDTO clientDTO);
 }
@@ -19,7 +19,8 @@ public interface UserMapper {
             @Mapping(target = "surname", source = "user.surname"),
             @Mapping(target = "email", source = "user.email"),
             @Mapping(target = "password", source = "user.password"),
-            @Mapping(target = "mobilePhone", source = "user.mobilePhone")
+            @Mapping(target = "mobilePhone", source = "user.mobilePhone"),
+            @Mapping(target = "version", source = "user.version")
     })
 
     UserDTO toUserDTO(User user);
@@ -35,6 +36,8 @@ public interface UserMapper {
         @Mapping(target = "email", source = "userDTO.email"),
         @Mapping(target = "password", source = "userDTO.password"),
         @Mapping(target = "mobilePhone", source = "userDTO.mobilePhone"),
+        // Carried over so saving a stale user fails the optimistic lock check
+        @Mapping(target = "version", source = "userDTO.version"),
         @Mapping(target = "creationDate", ignore = true),
         @Mapping(target = "modificationDate", ignore = true),
         @Mapping(target = "clients", ignore = true)
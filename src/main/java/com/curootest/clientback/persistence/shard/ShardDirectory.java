@@ -0,0 +1,371 @@
+package com.curootest.clientback.persistence.shard;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.curootest.clientback.config.ShardRoutingDataSource;
+import com.curootest.clientback.exception.ShardMoveInProgressException;
+import com.curootest.clientback.persistence.ClientIdNumberRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Directory of the sharded clients, kept on the primary database: which shard holds the clients of each user
+ * (user_shards) and which user holds each client ID number (client_id_numbers).
+ *
+ * A user without a directory entry lives on its {@link ShardRing} owner, and is pinned there on its first
+ * write, so adding shards never moves existing clients implicitly. Writes hold a shared advisory lock on the
+ * user for their whole duration and the final step of a move holds it exclusively, so no write lands on a shard
+ * the user is leaving. Reads take no lock and use a cache of the placements, which every instance refreshes
+ * from the placement versions a move bumps; after a move, writes are held back until the other instances
+ * have picked up the new placement, so none of them reads a copy that misses a write.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.shards.enabled", havingValue = "true")
+public class ShardDirectory implements ClientIdNumberRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardDirectory.class);
+
+    private static final String CACHE_NAME = "shard.placements";
+
+    // First key of the two-key advisory locks, keeping user locks apart from any other advisory lock
+    private static final int LOCK_NAMESPACE = 0x53484152;
+
+    private final DataSource directory;
+    private final JdbcTemplate jdbcTemplate;
+    // Separate pool: claims are made by writes that already hold a directory connection for their lock
+    private final JdbcTemplate registry;
+    private final ShardRing ring;
+    private final int shardCount;
+    private final Duration lockTimeout;
+    private final Cache<Integer, Integer> placements;
+    // Highest placement version applied to the cache, -1 until the first refresh
+    private volatile long placementVersion = -1;
+
+    public ShardDirectory(
+            DataSource dataSource,
+            @Value("${datasource.shards.virtual-nodes}") int virtualNodes,
+            @Value("${datasource.shards.lock-timeout}") Duration lockTimeout,
+            @Value("${datasource.shards.placement-cache.max-size}") long placementCacheSize,
+            // A safety net in case refreshing fails, moves reach the cache through refreshPlacements
+            @Value("${datasource.shards.placement-cache.ttl}") Duration placementCacheTtl,
+            MeterRegistry meterRegistry) throws SQLException {
+        ShardRoutingDataSource routing = dataSource.unwrap(ShardRoutingDataSource.class);
+        this.directory = routing.getDirectory();
+        this.jdbcTemplate = new JdbcTemplate(directory);
+        this.registry = new JdbcTemplate(routing.getIdNumbers());
+        this.shardCount = routing.getShardCount();
+        this.ring = new ShardRing(shardCount, virtualNodes);
+        this.lockTimeout = lockTimeout;
+        this.placements = Caffeine.newBuilder()
+                .maximumSize(placementCacheSize)
+                .expireAfterWrite(placementCacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, placements, CACHE_NAME);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int ringOwner(Integer userId) {
+        return ring.shardOf(userId);
+    }
+
+    /**
+     * Shard to read the user's clients from, possibly stale by up to the placement poll interval after a move
+     */
+    public int shardOf(Integer userId) {
+        return placements.get(userId, id -> {
+            List<Integer> shard = jdbcTemplate.queryForList(
+                    "SELECT shard FROM user_shards WHERE user_id = ?", Integer.class, id);
+            return shard.isEmpty() ? ring.shardOf(id) : checked(id, shard.get(0));
+        });
+    }
+
+    /**
+     * Apply the placements moved since the last refresh. A move commits its version right after taking it and
+     * the rebalancer moves one user at a time, so versions become visible in order.
+     */
+    @Scheduled(fixedDelayString = "${datasource.shards.placement-poll-interval-ms}")
+    public void refreshPlacements() {
+        try {
+            if (placementVersion < 0) {
+                placementVersion = jdbcTemplate.queryForObject("SELECT coalesce(max(version), 0) FROM user_shards",
+                        Long.class);
+                return;
+            }
+            jdbcTemplate.query("SELECT user_id, shard, version FROM user_shards WHERE version > ? ORDER BY version",
+                    resultSet -> {
+                        placements.put(resultSet.getInt(1), checked(resultSet.getInt(1), resultSet.getInt(2)));
+                        placementVersion = resultSet.getLong(3);
+                    }, placementVersion);
+        } catch (RuntimeException e) {
+            // Cached placements still expire after their TTL
+            logger.warn("Refreshing shard placements failed, retrying in the next run", e);
+        }
+    }
+
+    /**
+     * Run a write on the user's shard while holding the user's shared lock, pinning the user to the shard
+     *
+     * @throws ShardMoveInProgressException if the user's clients are being moved for longer than the lock timeout
+     */
+    public <T> T withWriteLock(Integer userId, IntFunction<T> write) {
+        return inLockedTransaction(userId, false, lockTimeout, placement -> {
+            if (placement.writableInMillis > 0) {
+                awaitWritable(userId, placement.writableInMillis);
+            }
+            int shard = placement.shard();
+            if (!placement.pinned) {
+                placement.pin();
+            }
+            placements.put(userId, shard);
+            return write.apply(shard);
+        });
+    }
+
+    /**
+     * Run a step of a move while holding the user's shared lock, which keeps the placement from changing
+     * while writes go on
+     */
+    <T> T withSharedLock(Integer userId, Duration timeout, Function<Placement, T> step) {
+        return inLockedTransaction(userId, false, timeout, step);
+    }
+
+    /**
+     * Run a step of a move while holding the user's exclusive lock, which waits for the running writes
+     * and holds back new ones
+     */
+    <T> T withMoveLock(Integer userId, Duration timeout, Function<Placement, T> step) {
+        T result = inLockedTransaction(userId, true, timeout, step);
+        placements.invalidate(userId);
+        return result;
+    }
+
+    /**
+     * Pinned users whose ring owner is another shard, with the shard they are on
+     */
+    Map<Integer, Integer> misplacedUsers() {
+        Map<Integer, Integer> misplaced = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT user_id, shard FROM user_shards ORDER BY user_id", resultSet -> {
+            int userId = resultSet.getInt(1);
+            int shard = resultSet.getInt(2);
+            if (shard != ring.shardOf(userId)) {
+                misplaced.put(userId, shard);
+            }
+        });
+        return misplaced;
+    }
+
+    @Override
+    public Set<String> reserve(Collection<String> idNumbers, Integer userId) {
+        if (idNumbers.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> reserved = new HashSet<>(registry.queryForList("""
+                INSERT INTO client_id_numbers (id_number, user_id)
+                SELECT DISTINCT unnest(?::varchar[]), ?
+                ON CONFLICT (id_number) DO NOTHING
+                RETURNING id_number""", String.class, idNumbers.toArray(String[]::new), userId));
+        if (!reserved.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        releaseQuietly(reserved, userId);
+                    }
+                }
+            });
+        }
+        return reserved;
+    }
+
+    @Override
+    public void releaseAfterCommit(Collection<String> idNumbers, Integer userId) {
+        if (idNumbers.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(idNumbers, userId);
+            return;
+        }
+        List<String> released = List.copyOf(idNumbers);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                releaseQuietly(released, userId);
+            }
+        });
+    }
+
+    @Override
+    public void release(Collection<String> idNumbers, Integer userId) {
+        if (!idNumbers.isEmpty()) {
+            registry.update("DELETE FROM client_id_numbers WHERE user_id = ? AND id_number = ANY (?::varchar[])",
+                    userId, idNumbers.toArray(String[]::new));
+        }
+    }
+
+    /**
+     * The client write has already completed, so a failure only leaves a claim behind, which keeps the ID
+     * number from being reused until it is removed
+     */
+    private void releaseQuietly(Collection<String> idNumbers, Integer userId) {
+        try {
+            release(idNumbers, userId);
+        } catch (DataAccessException e) {
+            logger.warn("Could not release ID numbers {} of user ID: {}", idNumbers, userId, e);
+        }
+    }
+
+    private <T> T inLockedTransaction(Integer userId, boolean exclusive, Duration timeout,
+            Function<Placement, T> work) {
+        try (Connection connection = directory.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                JdbcTemplate transaction = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                lock(transaction, userId, exclusive, timeout);
+                List<Placement> pinned = transaction.query("""
+                        SELECT shard, ceil(greatest(0, extract(epoch FROM writable_at - clock_timestamp())) * 1000)
+                        FROM user_shards WHERE user_id = ?""",
+                        (resultSet, rowNum) -> new Placement(transaction, userId,
+                                checked(userId, resultSet.getInt(1)), true, resultSet.getLong(2)),
+                        userId);
+                Placement placement = pinned.isEmpty()
+                        ? new Placement(transaction, userId, ring.shardOf(userId), false, 0)
+                        : pinned.get(0);
+                T result = work.apply(placement);
+                connection.commit();
+                return result;
+            } catch (RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Shard directory transaction failed", e);
+        }
+    }
+
+    /**
+     * Hold back a write until every instance reads the user from its new shard
+     */
+    private void awaitWritable(Integer userId, long waitMillis) {
+        if (waitMillis > lockTimeout.toMillis()) {
+            throw new ShardMoveInProgressException("Clients of this user are being moved, try again shortly.",
+                    Math.max(1, Duration.ofMillis(waitMillis).toSeconds()));
+        }
+        logger.debug("Waiting {}ms for the new placement of user ID: {} to spread", waitMillis, userId);
+        try {
+            Thread.sleep(waitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ShardMoveInProgressException("Clients of this user are being moved, try again shortly.", 1);
+        }
+    }
+
+    private void lock(JdbcTemplate transaction, Integer userId, boolean exclusive, Duration timeout) {
+        transaction.execute("SET LOCAL lock_timeout = '" + timeout.toMillis() + "ms'");
+        try {
+            transaction.query(exclusive
+                    ? "SELECT pg_advisory_xact_lock(?, ?)"
+                    : "SELECT pg_advisory_xact_lock_shared(?, ?)", resultSet -> null, LOCK_NAMESPACE, userId);
+        } catch (CannotAcquireLockException e) {
+            if (exclusive) {
+                throw e;
+            }
+            logger.debug("Timed out waiting for the move of user ID: {}", userId);
+            throw new ShardMoveInProgressException("Clients of this user are being moved, try again shortly.",
+                    Math.max(1, timeout.toSeconds()));
+        }
+    }
+
+    private int checked(Integer userId, int shard) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalStateException("User ID " + userId + " is placed on shard " + shard + ", but only "
+                    + shardCount + " shards are configured");
+        }
+        return shard;
+    }
+
+    /**
+     * Placement of a user inside its locked directory transaction
+     */
+    static final class Placement {
+        private final JdbcTemplate transaction;
+        private final Integer userId;
+        private final long writableInMillis;
+        private int shard;
+        private boolean pinned;
+
+        private Placement(JdbcTemplate transaction, Integer userId, int shard, boolean pinned,
+                long writableInMillis) {
+            this.transaction = transaction;
+            this.userId = userId;
+            this.shard = shard;
+            this.pinned = pinned;
+            this.writableInMillis = writableInMillis;
+        }
+
+        int shard() {
+            return shard;
+        }
+
+        /**
+         * Pin the user to the shard it is on, effective when the directory transaction commits. The placement
+         * does not change, so no instance needs to refresh it.
+         */
+        void pin() {
+            transaction.update("""
+                    INSERT INTO user_shards (user_id, shard) VALUES (?, ?)
+                    ON CONFLICT (user_id) DO NOTHING""", userId, shard);
+            pinned = true;
+        }
+
+        /**
+         * Place the user on a shard with a new placement version, effective when the directory transaction
+         * commits, and hold back its writes for the given time
+         */
+        void moveTo(int target, Duration writeFence) {
+            transaction.update("""
+                    INSERT INTO user_shards (user_id, shard, version, writable_at)
+                    VALUES (?, ?, nextval('user_shards_version_seq'), clock_timestamp() + ? * interval '1 millisecond')
+                    ON CONFLICT (user_id) DO UPDATE
+                    SET shard = EXCLUDED.shard, version = EXCLUDED.version, writable_at = EXCLUDED.writable_at""",
+                    userId, target, writeFence.toMillis());
+            shard = target;
+            pinned = true;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.curootest.clientback.persistence.shard;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off rebalancing run, started next to the serving instances with
+ * {@code --datasource.shards.rebalance.enabled=true --spring.main.web-application-type=none}.
+ * Moves the listed users to the target shard, or every user placed away from its ring owner,
+ * then exits.
+ */
+@Component
+@ConditionalOnProperty(prefix = "datasource.shards", name = { "enabled", "rebalance.enabled" }, havingValue = "true")
+public class ShardRebalanceRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalanceRunner.class);
+
+    private final ShardRebalancer rebalancer;
+    private final ShardDirectory shardDirectory;
+    private final String users;
+    private final int target;
+    private final ConfigurableApplicationContext context;
+
+    public ShardRebalanceRunner(
+            ShardRebalancer rebalancer,
+            ShardDirectory shardDirectory,
+            @Value("${datasource.shards.rebalance.users}") String users,
+            @Value("${datasource.shards.rebalance.target}") int target,
+            ConfigurableApplicationContext context) {
+        this.rebalancer = rebalancer;
+        this.shardDirectory = shardDirectory;
+        this.users = users;
+        this.target = target;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Map<Integer, Integer> moves;
+        if (users.isBlank()) {
+            moves = rebalancer.planRingMoves();
+        } else {
+            moves = new LinkedHashMap<>();
+            Arrays.stream(users.split(",")).map(String::trim).filter(user -> !user.isEmpty()).map(Integer::valueOf)
+                    .forEach(userId -> moves.put(userId, target >= 0 ? target : shardDirectory.ringOwner(userId)));
+        }
+
+        logger.info("Rebalancing {} users over {} shards", moves.size(), shardDirectory.getShardCount());
+        int moved = rebalancer.rebalance(moves);
+        logger.info("Rebalancing done, moved {} users", moved);
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -0,0 +1,282 @@
+package com.curootest.clientback.persistence.shard;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import com.curootest.clientback.config.ShardRoutingDataSource;
+
+/**
+ * Moves the clients of users between shards while the application keeps serving them.
+ *
+ * The clients are copied to the target with their IDs and versions under the user's shared lock, so writes go
+ * on meanwhile, and the rows written during the copy are caught up. Only the last catch-up and the placement
+ * switch hold the exclusive lock. Writes are then held back for the write fence, until every instance reads
+ * the user from the target; the source copy is deleted after the drain delay, once no read uses it anymore.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.shards.enabled", havingValue = "true")
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String CLIENT_COLUMNS =
+            "client_id, id_type, id_number, name, surname, creation_date, modification_date, version";
+
+    private static final String SELECT_PAGE = "SELECT " + CLIENT_COLUMNS
+            + " FROM clients WHERE user_id = ? AND client_id > ? ORDER BY client_id LIMIT ?";
+
+    private static final String SELECT_BY_IDS = "SELECT " + CLIENT_COLUMNS
+            + " FROM clients WHERE user_id = ? AND client_id = ANY (?::int[])";
+
+    private static final String SELECT_VERSION_PAGE =
+            "SELECT client_id, version FROM clients WHERE user_id = ? AND client_id > ? ORDER BY client_id LIMIT ?";
+
+    private static final String SELECT_VERSION_RANGE =
+            "SELECT client_id, version FROM clients WHERE user_id = ? AND client_id > ? AND client_id <= ?";
+
+    private static final String INSERT_CLIENT = """
+            INSERT INTO clients (client_id, user_id, id_type, id_number, name, surname, creation_date,
+                modification_date, version)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private final ShardDirectory shardDirectory;
+    private final ShardRoutingDataSource shards;
+    private final Duration lockTimeout;
+    private final Duration writeFence;
+    private final Duration drainDelay;
+    private final int copyBatchSize;
+
+    public ShardRebalancer(
+            ShardDirectory shardDirectory,
+            DataSource dataSource,
+            @Value("${datasource.shards.rebalance.lock-timeout}") Duration lockTimeout,
+            @Value("${datasource.shards.rebalance.write-fence}") Duration writeFence,
+            @Value("${datasource.shards.rebalance.drain-delay}") Duration drainDelay,
+            @Value("${datasource.shards.rebalance.copy-batch-size}") int copyBatchSize) throws SQLException {
+        this.shardDirectory = shardDirectory;
+        this.shards = dataSource.unwrap(ShardRoutingDataSource.class);
+        this.lockTimeout = lockTimeout;
+        this.writeFence = writeFence;
+        this.drainDelay = drainDelay;
+        this.copyBatchSize = copyBatchSize;
+    }
+
+    /**
+     * Users placed away from their ring owner, e.g. after shards were added, with the ring owner as target
+     */
+    public Map<Integer, Integer> planRingMoves() {
+        Map<Integer, Integer> moves = new LinkedHashMap<>();
+        shardDirectory.misplacedUsers().keySet()
+                .forEach(userId -> moves.put(userId, shardDirectory.ringOwner(userId)));
+        return moves;
+    }
+
+    /**
+     * Move every user to its target shard, then delete the source copies once no reader uses them anymore
+     *
+     * @param moves user ID to target shard
+     * @return number of users moved
+     */
+    public int rebalance(Map<Integer, Integer> moves) throws InterruptedException {
+        Map<Integer, Integer> sources = new LinkedHashMap<>();
+        moves.forEach((userId, target) -> {
+            int source = move(userId, target);
+            if (source != target) {
+                sources.put(userId, source);
+            }
+        });
+        if (sources.isEmpty()) {
+            return 0;
+        }
+
+        logger.info("Moved {} users, deleting their previous copies in {}", sources.size(), drainDelay);
+        Thread.sleep(drainDelay.toMillis());
+        sources.forEach(this::purge);
+        return sources.size();
+    }
+
+    /**
+     * Copy the user's clients to the target shard and place the user there. The source copy stays until
+     * {@link #purge}.
+     *
+     * @return the shard the user was on, the target itself if there was nothing to move
+     */
+    public int move(Integer userId, int target) {
+        if (target < 0 || target >= shards.getShardCount()) {
+            throw new IllegalArgumentException("Shard " + target + " does not exist");
+        }
+        int source = shardDirectory.withSharedLock(userId, lockTimeout, placement -> {
+            if (placement.shard() != target) {
+                int copied = copy(userId, placement.shard(), target);
+                int caughtUp = catchUp(userId, placement.shard(), target);
+                logger.debug("Copied {} clients of user ID: {} to shard {}, {} changed meanwhile", copied, userId,
+                        target, caughtUp);
+            }
+            return placement.shard();
+        });
+        if (source == target) {
+            return source;
+        }
+
+        return shardDirectory.withMoveLock(userId, lockTimeout, placement -> {
+            if (placement.shard() != source) {
+                throw new IllegalStateException("User ID " + userId + " was moved to shard " + placement.shard()
+                        + " by another rebalancer");
+            }
+            int caughtUp = catchUp(userId, source, target);
+            placement.moveTo(target, writeFence);
+            logger.info("Moved the clients of user ID: {} from shard {} to shard {}, {} caught up while writes waited",
+                    userId, source, target, caughtUp);
+            return source;
+        });
+    }
+
+    /**
+     * Delete the user's clients from a shard it has left, unless it has been moved back since
+     */
+    public void purge(Integer userId, int source) {
+        shardDirectory.withMoveLock(userId, lockTimeout, placement -> {
+            if (placement.shard() == source) {
+                logger.warn("User ID: {} is back on shard {}, keeping its clients there", userId, source);
+                return null;
+            }
+            int deleted = new JdbcTemplate(shards.getShard(source))
+                    .update("DELETE FROM clients WHERE user_id = ?", userId);
+            logger.info("Deleted {} clients of user ID: {} from shard {}", deleted, userId, source);
+            return null;
+        });
+    }
+
+    /**
+     * Copy every client, replacing whatever an earlier move away from the target left behind
+     */
+    private int copy(Integer userId, int source, int target) {
+        JdbcTemplate sourceJdbc = new JdbcTemplate(shards.getShard(source));
+        return inTransaction(target, targetJdbc -> {
+            targetJdbc.update("DELETE FROM clients WHERE user_id = ?", userId);
+
+            int copied = 0;
+            int afterId = 0;
+            List<Object[]> page;
+            do {
+                page = sourceJdbc.query(SELECT_PAGE, (resultSet, rowNum) -> toInsertValues(resultSet, userId),
+                        userId, afterId, copyBatchSize);
+                if (!page.isEmpty()) {
+                    targetJdbc.batchUpdate(INSERT_CLIENT, page);
+                    afterId = (Integer) page.get(page.size() - 1)[0];
+                    copied += page.size();
+                }
+            } while (page.size() == copyBatchSize);
+            return copied;
+        });
+    }
+
+    /**
+     * Bring the target up to date with the clients created, updated or deleted on the source since the copy,
+     * found by comparing the IDs and versions of both, range by range
+     *
+     * @return number of clients that differed
+     */
+    private int catchUp(Integer userId, int source, int target) {
+        JdbcTemplate sourceJdbc = new JdbcTemplate(shards.getShard(source));
+        JdbcTemplate targetJdbc = new JdbcTemplate(shards.getShard(target));
+        List<Integer> changed = new ArrayList<>();
+        List<Integer> stale = new ArrayList<>();
+        int deleted = 0;
+
+        int afterId = 0;
+        int upToId;
+        do {
+            List<long[]> sourceVersions = sourceJdbc.query(SELECT_VERSION_PAGE,
+                    (resultSet, rowNum) -> new long[] { resultSet.getInt(1), resultSet.getLong(2) },
+                    userId, afterId, copyBatchSize);
+            upToId = sourceVersions.size() == copyBatchSize
+                    ? (int) sourceVersions.get(sourceVersions.size() - 1)[0]
+                    : Integer.MAX_VALUE;
+
+            Map<Integer, Long> targetVersions = new HashMap<>();
+            targetJdbc.query(SELECT_VERSION_RANGE,
+                    resultSet -> {
+                        targetVersions.put(resultSet.getInt(1), resultSet.getLong(2));
+                    }, userId, afterId, upToId);
+            for (long[] sourceVersion : sourceVersions) {
+                Long targetVersion = targetVersions.remove((int) sourceVersion[0]);
+                if (targetVersion == null || targetVersion != sourceVersion[1]) {
+                    changed.add((int) sourceVersion[0]);
+                    if (targetVersion != null) {
+                        stale.add((int) sourceVersion[0]);
+                    }
+                }
+            }
+            // Deleted on the source since the copy
+            stale.addAll(targetVersions.keySet());
+            deleted += targetVersions.size();
+            afterId = upToId;
+        } while (upToId != Integer.MAX_VALUE);
+
+        if (changed.isEmpty() && stale.isEmpty()) {
+            return 0;
+        }
+        inTransaction(target, transaction -> {
+            // Stale rows go first, they may hold an ID number a changed client now has
+            transaction.update("DELETE FROM clients WHERE user_id = ? AND client_id = ANY (?::int[])", userId,
+                    stale.toArray(Integer[]::new));
+            for (int from = 0; from < changed.size(); from += copyBatchSize) {
+                Integer[] ids = changed.subList(from, Math.min(from + copyBatchSize, changed.size()))
+                        .toArray(Integer[]::new);
+                transaction.batchUpdate(INSERT_CLIENT, sourceJdbc.query(SELECT_BY_IDS,
+                        (resultSet, rowNum) -> toInsertValues(resultSet, userId), userId, ids));
+            }
+            return null;
+        });
+        return changed.size() + deleted;
+    }
+
+    private static Object[] toInsertValues(ResultSet resultSet, Integer userId) throws SQLException {
+        return new Object[] {
+                resultSet.getInt("client_id"), userId, resultSet.getString("id_type"),
+                resultSet.getString("id_number"), resultSet.getString("name"), resultSet.getString("surname"),
+                resultSet.getTimestamp("creation_date"), resultSet.getTimestamp("modification_date"),
+                resultSet.getLong("version") };
+    }
+
+    /**
+     * Run the work in one transaction on a shard
+     */
+    private <T> T inTransaction(int shard, Function<JdbcTemplate, T> work) {
+        try (Connection connection = shards.getShard(shard).getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.apply(new JdbcTemplate(new SingleConnectionDataSource(connection, true)));
+                connection.commit();
+                return result;
+            } catch (RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Writing clients to shard " + shard + " failed", e);
+        }
+    }
+}
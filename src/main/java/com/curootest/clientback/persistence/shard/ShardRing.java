@@ -0,0 +1,45 @@
+package com.curootest.clientback.persistence.shard;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring placing users on shards. Every shard owns many points on the ring, and a user belongs
+ * to the shard owning the first point at or after the hash of the user ID, so adding a shard only takes over
+ * about 1/N of the users, evenly from all the others.
+ */
+public class ShardRing {
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    public ShardRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one shard and one virtual node per shard");
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                // Points depend only on the shard and node numbers, so every instance builds the same ring
+                ring.putIfAbsent(hash(((long) shard << 32) | node), shard);
+            }
+        }
+    }
+
+    public int shardOf(int userId) {
+        Map.Entry<Long, Integer> owner = ring.ceilingEntry(hash(userId));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * MurmurHash3 finalizer, stable across JVMs unlike {@link Object#hashCode()} of most types,
+     * and spreading sequential IDs over the whole ring
+     */
+    private static long hash(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53cbe53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
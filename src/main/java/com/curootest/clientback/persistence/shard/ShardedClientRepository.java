@@ -0,0 +1,102 @@
+package com.curootest.clientback.persistence.shard;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import com.curootest.clientback.config.ShardContext;
+import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.dto.BulkImportResult;
+import com.curootest.clientback.domain.repository.ClientDTORepository;
+import com.curootest.clientback.persistence.ClientRepository;
+
+/**
+ * Client repository when clients are sharded by owner: every operation runs on the shard holding the user's
+ * clients, writes under the user's shared lock in the {@link ShardDirectory}
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(name = "datasource.shards.enabled", havingValue = "true")
+public class ShardedClientRepository implements ClientDTORepository {
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Override
+    public List<ClientDTO> getAllByUserId(Integer userId) {
+        return ShardContext.callOn(shardDirectory.shardOf(userId), () -> clientRepository.getAllByUserId(userId));
+    }
+
+    @Override
+    public String getFingerprintByUserId(Integer userId) {
+        return ShardContext.callOn(shardDirectory.shardOf(userId),
+                () -> clientRepository.getFingerprintByUserId(userId));
+    }
+
+    @Override
+    public List<ClientDTO> getPageByUserId(Integer userId, Integer afterId, int limit) {
+        return ShardContext.callOn(shardDirectory.shardOf(userId),
+                () -> clientRepository.getPageByUserId(userId, afterId, limit));
+    }
+
+    @Override
+    public List<ClientDTO> searchByUserId(Integer userId, String query, Integer afterId, int limit) {
+        return ShardContext.callOn(shardDirectory.shardOf(userId),
+                () -> clientRepository.searchByUserId(userId, query, afterId, limit));
+    }
+
+    @Override
+    public void streamAllByUserId(Integer userId, Consumer<ClientDTO> consumer) {
+        ShardContext.runOn(shardDirectory.shardOf(userId), () -> clientRepository.streamAllByUserId(userId, consumer));
+    }
+
+    @Override
+    public Optional<ClientDTO> getByIdNumberAndUserId(String idType, String idNumber, Integer userId) {
+        return ShardContext.callOn(shardDirectory.shardOf(userId),
+                () -> clientRepository.getByIdNumberAndUserId(idType, idNumber, userId));
+    }
+
+    @Override
+    public List<ClientDTO> getByIdNumbersAndUserId(Collection<String> idNumbers, Integer userId) {
+        return ShardContext.callOn(shardDirectory.shardOf(userId),
+                () -> clientRepository.getByIdNumbersAndUserId(idNumbers, userId));
+    }
+
+    @Override
+    public ClientDTO saveClient(ClientDTO clientDTO, Integer userId) {
+        return shardDirectory.withWriteLock(userId,
+                shard -> ShardContext.callOn(shard, () -> clientRepository.saveClient(clientDTO, userId)));
+    }
+
+    /**
+     * The user's lock is held for the whole import, so a large import delays a move of the user until it ends
+     */
+    @Override
+    public BulkImportResult importClients(Iterator<ClientDTO> clients, Integer userId, int batchSize) {
+        return shardDirectory.withWriteLock(userId,
+                shard -> ShardContext.callOn(shard, () -> clientRepository.importClients(clients, userId, batchSize)));
+    }
+
+    @Override
+    public ClientDTO updateClientByUserId(Integer clientId, ClientDTO clientDTO, Integer userId,
+            Long expectedVersion) {
+        return shardDirectory.withWriteLock(userId, shard -> ShardContext.callOn(shard,
+                () -> clientRepository.updateClientByUserId(clientId, clientDTO, userId, expectedVersion)));
+    }
+
+    @Override
+    public boolean deleteClientByUserId(Integer clientId, Integer userId) {
+        return shardDirectory.withWriteLock(userId,
+                shard -> ShardContext.callOn(shard, () -> clientRepository.deleteClientByUserId(clientId, userId)));
+    }
+}
@@ -1,9 +1,18 @@
 package com.curootest.clientback.web.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,11 +20,27 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.dto.BulkImportResult;
+import com.curootest.clientback.domain.dto.ClientChange;
+import com.curootest.clientback.domain.dto.ClientLookupKey;
+import com.curootest.clientback.domain.dto.ClientLookupResult;
+import com.curootest.clientback.domain.dto.ClientPage;
+import com.curootest.clientback.domain.service.ClientChangeFeed;
+import com.curootest.clientback.domain.service.ClientETags;
 import com.curootest.clientback.domain.service.ClientService;
+import com.curootest.clientback.domain.service.SecurityService;
+import com.curootest.clientback.exception.InvalidImportPayloadException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -25,6 +50,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/clients")
@@ -35,30 +62,164 @@ public class ClientController {
         @Autowired
         private ClientService clientService;
 
-        @Operation(summary = "Get all clients for authenticated user", description = "Retrieves a list of all clients belonging to the currently authenticated user")
+        @Autowired
+        private ClientChangeFeed clientChangeFeed;
+
+        @Autowired
+        private SecurityService securityService;
+
+        @Autowired
+        private ObjectMapper objectMapper;
+
+        @Value("${clients.stream.timeout-ms:1800000}")
+        private long streamTimeoutMs;
+
+        @Operation(summary = "Get all clients for authenticated user", description = "Retrieves a list of all clients belonging to the currently authenticated user. Send the returned ETag in If-None-Match to get a 304 while the clients are unchanged.")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Successfully retrieved list of clients", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientDTO.class))),
+                        @ApiResponse(responseCode = "304", description = "Not modified - the clients still match the If-None-Match tag", content = @Content),
                         @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content),
                         @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions", content = @Content)
         })
         @GetMapping("/all")
-        public ResponseEntity<List<ClientDTO>> getAllClients() {
+        public ResponseEntity<List<ClientDTO>> getAllClients(WebRequest webRequest) {
+                // Answered from a fingerprint of the rows, before the clients are loaded and serialized
+                if (webRequest.checkNotModified(clientService.getAllClientsETag())) {
+                        return null;
+                }
                 return new ResponseEntity<>(clientService.getAllClients(), HttpStatus.OK);
         }
 
-        @Operation(summary = "Get client by ID type and number for authenticated user", description = "Retrieves a specific client using their identification type and number, filtered by the authenticated user")
+        @Operation(summary = "Stream all clients for authenticated user", description = "Writes the same JSON array as /clients/all incrementally while the clients are read, keeping memory flat for large result sets")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully streamed list of clients", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientDTO.class))),
+                        @ApiResponse(responseCode = "304", description = "Not modified - the clients still match the If-None-Match tag", content = @Content),
+                        @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content)
+        })
+        @GetMapping(value = "/all", params = "stream=true")
+        public void streamAllClients(
+                        @Parameter(description = "Stream the response instead of building it in memory", required = true, example = "true") @RequestParam boolean stream,
+                        WebRequest webRequest, HttpServletResponse response) throws IOException {
+                if (webRequest.checkNotModified(clientService.getAllClientsETag())) {
+                        return;
+                }
+                response.setStatus(HttpStatus.OK.value());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+                        generator.writeStartArray();
+                        clientService.streamAllClients(client -> {
+                                try {
+                                        generator.writeObject(client);
+                                } catch (IOException e) {
+                                        throw new UncheckedIOException(e);
+                                }
+                        });
+                        generator.writeEndArray();
+                }
+        }
+
+        @Operation(summary = "Stream changes to the clients of authenticated user", description = "Server-Sent Events stream pushing a created, updated or deleted event for every change to the user's clients, instead of polling /clients/all. On reconnect, send the last received event ID in Last-Event-ID to get the changes missed in between; a reset event means they are no longer available and the clients must be reloaded.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Stream opened", content = @Content(mediaType = "text/event-stream", schema = @Schema(implementation = ClientChange.class))),
+                        @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content)
+        })
+        @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        public ResponseEntity<SseEmitter> streamClientChanges(
+                        @Parameter(description = "ID of the last event received before reconnecting", example = "lx2k4f-1042") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+                SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+                // The connection is held by the servlet container without a thread; events are sent from the feed
+                ClientChangeFeed.Subscription subscription = clientChangeFeed.subscribe(
+                                securityService.getCurrentUserId(), lastEventId, new ClientChangeFeed.Listener() {
+                                        @Override
+                                        public void onChange(ClientChange change) throws IOException {
+                                                emitter.send(SseEmitter.event()
+                                                                .id(change.getId())
+                                                                .name(change.getType().name().toLowerCase())
+                                                                .data(change, MediaType.APPLICATION_JSON));
+                                        }
+
+                                        @Override
+                                        public void onHeartbeat() throws IOException {
+                                                emitter.send(SseEmitter.event().comment("keepalive"));
+                                        }
+
+                                        @Override
+                                        public void onClose() {
+                                                try {
+                                                        emitter.complete();
+                                                } catch (IllegalStateException e) {
+                                                        // Already completed by a timeout or a disconnect
+                                                }
+                                        }
+                                });
+                emitter.onCompletion(subscription::cancel);
+                emitter.onTimeout(subscription::cancel);
+                emitter.onError(error -> subscription.cancel());
+
+                // Keep nginx from buffering the events
+                return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+        }
+
+        @Operation(summary = "Get a page of clients for authenticated user", description = "Retrieves clients ordered by client ID using keyset pagination; pass the returned nextCursor to get the following page")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved page of clients", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientPage.class))),
+                        @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content)
+        })
+        @GetMapping("/page")
+        public ResponseEntity<ClientPage> getClientsPage(
+                        @Parameter(description = "Client ID after which the page starts, omit for the first page", example = "1042") @RequestParam(required = false) Integer cursor,
+                        @Parameter(description = "Maximum number of clients in the page", example = "100") @RequestParam(required = false) Integer size) {
+                return new ResponseEntity<>(clientService.getClientsPage(cursor, size), HttpStatus.OK);
+        }
+
+        @Operation(summary = "Search clients for authenticated user", description = "Finds clients whose name, surname or identification number contains the query (case insensitive), ordered by client ID; pass the returned nextCursor to get the following page")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved matching clients", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientPage.class))),
+                        @ApiResponse(responseCode = "400", description = "Search query too short", content = @Content),
+                        @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content)
+        })
+        @GetMapping("/search")
+        public ResponseEntity<ClientPage> searchClients(
+                        @Parameter(description = "Text to look for in name, surname or identification number", required = true, example = "doe") @RequestParam String q,
+                        @Parameter(description = "Client ID after which the page starts, omit for the first page", example = "1042") @RequestParam(required = false) Integer cursor,
+                        @Parameter(description = "Maximum number of clients in the page", example = "20") @RequestParam(required = false) Integer size) {
+                return new ResponseEntity<>(clientService.searchClients(q, cursor, size), HttpStatus.OK);
+        }
+
+        @Operation(summary = "Get client by ID type and number for authenticated user", description = "Retrieves a specific client using their identification type and number, filtered by the authenticated user. Send the returned ETag in If-None-Match to get a 304 while the client is unchanged.")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Client found successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientDTO.class))),
+                        @ApiResponse(responseCode = "304", description = "Not modified - the client still matches the If-None-Match tag", content = @Content),
                         @ApiResponse(responseCode = "404", description = "Client not found with the specified ID type and number for this user", content = @Content),
                         @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content)
         })
         @GetMapping("/{idType}/{idNumber}")
         public ResponseEntity<ClientDTO> getClientByIdNumber(
                         @Parameter(description = "Type of identification (e.g., CC, TI, CE)", required = true, example = "CC") @PathVariable String idType,
-                        @Parameter(description = "Identification number", required = true, example = "1234567890") @PathVariable String idNumber) {
-                return clientService.getClientByIdNumber(idType, idNumber)
-                                .map(client -> new ResponseEntity<>(client, HttpStatus.OK))
-                                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+                        @Parameter(description = "Identification number", required = true, example = "1234567890") @PathVariable String idNumber,
+                        WebRequest webRequest) {
+                Optional<ClientDTO> client = clientService.getClientByIdNumber(idType, idNumber);
+                if (client.isEmpty()) {
+                        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                }
+                // Returning null keeps the 304 prepared by checkNotModified and skips serialization
+                if (webRequest.checkNotModified(ClientETags.of(client.get()))) {
+                        return null;
+                }
+                return new ResponseEntity<>(client.get(), HttpStatus.OK);
+        }
+
+        @Operation(summary = "Look up many clients by ID type and number for authenticated user", description = "Resolves up to clients.lookup.max-keys identification documents with a single query, reporting for each one, in request order, whether the user has such a client")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Lookup processed, see the outcome of each key", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientLookupResult.class))),
+                        @ApiResponse(responseCode = "400", description = "No keys, too many keys or a key without idType or idNumber", content = @Content),
+                        @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content)
+        })
+        @PostMapping("/lookup")
+        public ResponseEntity<ClientLookupResult> lookupClients(
+                        @Parameter(description = "ID type and number pairs to look up", required = true) @RequestBody List<ClientLookupKey> keys) {
+                return new ResponseEntity<>(clientService.lookupClients(keys), HttpStatus.OK);
         }
 
         @Operation(summary = "Create a new client for authenticated user", description = "Creates a new client record linked to the currently authenticated user")
@@ -74,19 +235,37 @@ public class ClientController {
                 return new ResponseEntity<>(clientService.saveClient(clientDTO), HttpStatus.CREATED);
         }
 
-        @Operation(summary = "Update an existing client for authenticated user", description = "Updates client information by client ID, only if the client belongs to the authenticated user")
+        @Operation(summary = "Import many clients for authenticated user", description = "Creates clients from a JSON array or an NDJSON stream in batches. Clients whose ID number already exists are reported as duplicates instead of failing the import. Batches before a malformed element are kept.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Import processed, see the outcome of each client", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkImportResult.class))),
+                        @ApiResponse(responseCode = "400", description = "Malformed JSON or NDJSON payload", content = @Content),
+                        @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content)
+        })
+        @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+        public ResponseEntity<BulkImportResult> importClients(HttpServletRequest request) throws IOException {
+                // Read the payload element by element so large imports never sit in memory as a whole
+                try (MappingIterator<ClientDTO> clients = objectMapper.readerFor(ClientDTO.class)
+                                .readValues(request.getInputStream())) {
+                        return new ResponseEntity<>(clientService.importClients(payload(clients)), HttpStatus.OK);
+                }
+        }
+
+        @Operation(summary = "Update an existing client for authenticated user", description = "Updates client information by client ID, only if the client belongs to the authenticated user. With If-Match, or a version in the body, the update only happens while the client still has that version.")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Client updated successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientDTO.class))),
                         @ApiResponse(responseCode = "404", description = "Client not found with the specified ID for this user", content = @Content),
                         @ApiResponse(responseCode = "400", description = "Invalid input data - validation errors", content = @Content),
-                        @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content)
+                        @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content),
+                        @ApiResponse(responseCode = "409", description = "Conflict - the client was modified since the version in the body was read", content = @Content),
+                        @ApiResponse(responseCode = "412", description = "Precondition failed - the client was modified since the If-Match tag was read", content = @Content)
         })
         @PutMapping("/{clientId}")
         public ResponseEntity<ClientDTO> updateClient(
                         @Parameter(description = "Client ID to update", required = true, example = "1") @PathVariable Integer clientId,
-                        @Parameter(description = "Updated client data", required = true) @RequestBody ClientDTO clientDTO) {
-                return clientService.updateClient(clientId, clientDTO)
-                                .map(client -> new ResponseEntity<>(client, HttpStatus.OK))
+                        @Parameter(description = "Updated client data", required = true) @RequestBody ClientDTO clientDTO,
+                        @Parameter(description = "ETag of the client as last read", example = "\"42-v3\"") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+                return clientService.updateClient(clientId, clientDTO, parseIfMatch(ifMatch))
+                                .map(client -> ResponseEntity.ok().eTag(ClientETags.of(client)).body(client))
                                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
         }
 
@@ -94,6 +273,7 @@ public class ClientController {
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "204", description = "Client deleted successfully", content = @Content),
                         @ApiResponse(responseCode = "404", description = "Client not found with the specified ID for this user", content = @Content),
+                        @ApiResponse(responseCode = "409", description = "Conflict - the client was modified while it was being deleted", content = @Content),
                         @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content)
         })
         @DeleteMapping("/{clientId}")
@@ -103,4 +283,45 @@ public class ClientController {
                                 ? new ResponseEntity<>(HttpStatus.NO_CONTENT)
                                 : new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+
+        /**
+         * Get the strong tags listed in an If-Match header, or null when any current client matches
+         */
+        private static Set<String> parseIfMatch(String ifMatch) {
+                if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+                        return null;
+                }
+
+                Set<String> tags = new HashSet<>();
+                for (String tag : ifMatch.split(",")) {
+                        tag = tag.trim();
+                        // If-Match uses the strong comparison, weak tags never match
+                        if (!tag.startsWith("W/")) {
+                                tags.add(tag.replace("\"", ""));
+                        }
+                }
+                return tags;
+        }
+
+        private static Iterator<ClientDTO> payload(MappingIterator<ClientDTO> clients) {
+                return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                                try {
+                                        return clients.hasNextValue();
+                                } catch (IOException e) {
+                                        throw new InvalidImportPayloadException("Malformed client payload: " + e.getMessage());
+                                }
+                        }
+
+                        @Override
+                        public ClientDTO next() {
+                                try {
+                                        return clients.nextValue();
+                                } catch (IOException e) {
+                                        throw new InvalidImportPayloadException("Malformed client payload: " + e.getMessage());
+                                }
+                        }
+                };
+        }
 }
@@ -0,0 +1,41 @@
+package com.curootest.clientback.web.controller;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.curootest.clientback.config.JwtKeyRing;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@Tag(name = "Token Keys", description = "Public keys to verify issued tokens without calling this service")
+public class JwksController {
+
+        @Autowired
+        private JwtKeyRing keyRing;
+
+        // Must stay below the key activation delay, so verifiers learn new keys before they sign
+        @Value("${security.jwt.keys.jwks-max-age:5m}")
+        private Duration maxAge;
+
+        @Operation(summary = "JSON Web Key Set", description = "Returns the ES256 public keys tokens are signed with, selected by the kid header of a token")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Published public keys")
+        })
+        @GetMapping("/.well-known/jwks.json")
+        public ResponseEntity<Map<String, Object>> jwks() {
+                return ResponseEntity.ok()
+                                .cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+                                .body(keyRing.jwks());
+        }
+}
@@ -30,7 +30,8 @@ public class UserController {
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "201", description = "User registered successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))),
                         @ApiResponse(responseCode = "400", description = "Invalid input data - validation errors", content = @Content),
-                        @ApiResponse(responseCode = "409", description = "Conflict - User with this email already exists", content = @Content)
+                        @ApiResponse(responseCode = "409", description = "Conflict - User with this email already exists", content = @Content),
+                        @ApiResponse(responseCode = "503", description = "Service unavailable - too many concurrent password operations, retry after the Retry-After delay", content = @Content)
         })
         @PostMapping("/register")
         public ResponseEntity<UserDTO> register(
@@ -38,28 +39,59 @@ public class UserController {
                 return new ResponseEntity<>(userService.register(userDTO), HttpStatus.CREATED);
         }
 
-        @Operation(summary = "User login", description = "Authenticates a user and returns a JWT token")
+        @Operation(summary = "User login", description = "Authenticates a user and returns a short-lived access token and a refresh token")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Login successful - JWT token returned", content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoginResponse.class))),
                         @ApiResponse(responseCode = "401", description = "Invalid credentials - wrong email or password", content = @Content(mediaType = "application/json", schema = @Schema(type = "object", example = "{\"error\": \"Invalid credentials\"}"))),
-                        @ApiResponse(responseCode = "400", description = "Bad request - missing email or password", content = @Content)
+                        @ApiResponse(responseCode = "400", description = "Bad request - missing email or password", content = @Content),
+                        @ApiResponse(responseCode = "503", description = "Service unavailable - too many concurrent password operations, retry after the Retry-After delay", content = @Content)
         })
         @PostMapping("/login")
         public ResponseEntity<LoginResponse> login(
                         @Parameter(description = "User email address", required = true, example = "user@example.com") @RequestParam String email,
                         @Parameter(description = "User password", required = true, example = "password123") @RequestParam String password) {
                 return userService.login(email, password)
-                                .map(jwt -> new ResponseEntity<>(new LoginResponse(jwt), HttpStatus.OK))
+                                .map(tokens -> new ResponseEntity<>(tokens, HttpStatus.OK))
                                 .orElse(new ResponseEntity<>(HttpStatus.UNAUTHORIZED));
         }
 
+        @Operation(summary = "Refresh tokens", description = "Exchanges a refresh token for a new access and refresh token pair without checking the password. Each refresh token can be used once; reusing one revokes every token of the user")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "New token pair returned", content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoginResponse.class))),
+                        @ApiResponse(responseCode = "401", description = "Invalid, expired, revoked or already used refresh token", content = @Content),
+                        @ApiResponse(responseCode = "400", description = "Bad request - missing refresh token", content = @Content)
+        })
+        @PostMapping("/token/refresh")
+        public ResponseEntity<LoginResponse> refresh(
+                        @Parameter(description = "Refresh token from the last login or refresh", required = true) @RequestParam String refreshToken) {
+                return userService.refresh(refreshToken)
+                                .map(tokens -> new ResponseEntity<>(tokens, HttpStatus.OK))
+                                .orElse(new ResponseEntity<>(HttpStatus.UNAUTHORIZED));
+        }
+
+        @Operation(summary = "User logout", description = "Revokes the bearer access token and the given refresh token until they expire")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "204", description = "Tokens revoked", content = @Content)
+        })
+        @PostMapping("/logout")
+        public ResponseEntity<Void> logout(
+                        @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = false) String authorization,
+                        @Parameter(description = "Refresh token to revoke") @RequestParam(required = false) String refreshToken) {
+                String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                                ? authorization.substring(7)
+                                : null;
+                userService.logout(accessToken, refreshToken);
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
         @Operation(summary = "Update user information", description = "Updates user profile information (requires authentication)")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "User updated successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))),
                         @ApiResponse(responseCode = "404", description = "User not found with the specified ID", content = @Content),
                         @ApiResponse(responseCode = "400", description = "Invalid input data - validation errors", content = @Content),
                         @ApiResponse(responseCode = "401", description = "Unauthorized - JWT token required", content = @Content),
-                        @ApiResponse(responseCode = "403", description = "Forbidden - Cannot update other user's information", content = @Content)
+                        @ApiResponse(responseCode = "403", description = "Forbidden - Cannot update other user's information", content = @Content),
+                        @ApiResponse(responseCode = "409", description = "Conflict - the user was modified since the given version was read", content = @Content)
         })
         @SecurityRequirement(name = "Bearer Authentication")
         @PutMapping("/{userId}")
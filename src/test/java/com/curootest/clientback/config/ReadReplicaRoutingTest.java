@@ -0,0 +1,119 @@
+package com.curootest.clientback.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.repository.ClientDTORepository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Routes between two independent Postgres instances standing in for a primary and its replica:
+ * their rows differ, so each result shows which instance served it.
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.hibernate.ddl-auto=none",
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false",
+		"outbox.relay.enabled=false",
+		"rate-limit.enabled=false",
+		"datasource.replicas.enabled=true",
+		"datasource.replicas.lag-check-interval=200ms" })
+class ReadReplicaRoutingTest {
+
+	private static final int USER_ID = 1;
+
+	private static EmbeddedPostgres primary;
+	private static EmbeddedPostgres replica;
+
+	@Autowired
+	private ClientDTORepository clientRepository;
+
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) throws Exception {
+		primary = start("Primary");
+		replica = start("Replica");
+		registry.add("spring.datasource.url", () -> primary.getJdbcUrl("postgres", "postgres"));
+		registry.add("spring.datasource.username", () -> "postgres");
+		registry.add("spring.datasource.password", () -> "postgres");
+		registry.add("datasource.replicas.urls", () -> replica.getJdbcUrl("postgres", "postgres"));
+	}
+
+	private static EmbeddedPostgres start(String surname) throws Exception {
+		EmbeddedPostgres postgres = EmbeddedPostgres.start();
+		try (Connection connection = postgres.getPostgresDatabase().getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute(Files.readString(Path.of("scripts/schemas.sql")));
+			statement.execute("""
+					INSERT INTO Users (name, surname, email, password)
+					VALUES ('User', 'One', 'user1@example.com', 'hash')
+					""");
+			statement.execute("""
+					INSERT INTO Clients (user_id, id_type, id_number, name, surname)
+					SELECT 1, 'CC', 'ID-' || c, 'Client', '%s'
+					FROM generate_series(1, 3) AS c
+					""".formatted(surname));
+		}
+		return postgres;
+	}
+
+	@AfterAll
+	static void tearDown() throws Exception {
+		primary.close();
+		replica.close();
+	}
+
+	@Test
+	void readOnlyTransactionsAreServedByTheReplica() throws Exception {
+		assertThat(awaitReplicaInRotation()).extracting(ClientDTO::getSurname).containsOnly("Replica");
+	}
+
+	@Test
+	void writesGoToThePrimary() throws Exception {
+		awaitReplicaInRotation();
+
+		clientRepository.saveClient(new ClientDTO(null, "New", "Client", "CC", "NEW-1", null), USER_ID);
+
+		assertThat(countClients(primary.getPostgresDatabase(), "NEW-1")).isEqualTo(1);
+		assertThat(countClients(replica.getPostgresDatabase(), "NEW-1")).isZero();
+	}
+
+	/**
+	 * Replicas join the rotation after their first lag check, until then reads go to the primary
+	 */
+	private List<ClientDTO> awaitReplicaInRotation() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		List<ClientDTO> clients = clientRepository.getAllByUserId(USER_ID);
+		while (!"Replica".equals(clients.get(0).getSurname()) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+			clients = clientRepository.getAllByUserId(USER_ID);
+		}
+		return clients;
+	}
+
+	private static int countClients(DataSource dataSource, String idNumber) throws Exception {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(
+						"SELECT count(*) FROM Clients WHERE id_number = '" + idNumber + "'")) {
+			resultSet.next();
+			return resultSet.getInt(1);
+		}
+	}
+}
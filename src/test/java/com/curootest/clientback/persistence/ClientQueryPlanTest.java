@@ -0,0 +1,110 @@
+package com.curootest.clientback.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Guards the ownership-scoped client queries against falling back to sequential scans.
+ * The statements mirror the SQL Hibernate generates for ClientCrudRepository.
+ */
+class ClientQueryPlanTest {
+
+	private static EmbeddedPostgres postgres;
+	private static Connection connection;
+
+	@BeforeAll
+	static void setUp() throws Exception {
+		postgres = EmbeddedPostgres.start();
+		connection = postgres.getPostgresDatabase().getConnection();
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(Files.readString(Path.of("scripts/schemas.sql")));
+			statement.execute("""
+					INSERT INTO Users (name, surname, email, password)
+					SELECT 'User', 'Number ' || u, 'user' || u || '@example.com', 'hash'
+					FROM generate_series(1, 200) AS u
+					""");
+			statement.execute("""
+					INSERT INTO Clients (user_id, id_type, id_number, name, surname)
+					SELECT 1 + (c % 200), 'CC', 'ID-' || c, 'Client', 'Number ' || c
+					FROM generate_series(1, 40000) AS c
+					""");
+			statement.execute("ANALYZE");
+		}
+	}
+
+	@AfterAll
+	static void tearDown() throws Exception {
+		connection.close();
+		postgres.close();
+	}
+
+	@Test
+	void listingByUserUsesUserClientIndex() throws Exception {
+		String plan = explain("SELECT * FROM clients c WHERE c.user_id = 42 ORDER BY c.client_id");
+
+		assertThat(plan).doesNotContain("Seq Scan").contains("idx_clients_user_id_client_id");
+	}
+
+	@Test
+	void keysetPageByUserUsesUserClientIndex() throws Exception {
+		String plan = explain(
+				"SELECT * FROM clients c WHERE c.user_id = 42 AND c.client_id > 1000 ORDER BY c.client_id LIMIT 101");
+
+		assertThat(plan).doesNotContain("Seq Scan").contains("idx_clients_user_id_client_id");
+	}
+
+	@Test
+	void lookupByIdentificationAndUserUsesAnIndex() throws Exception {
+		String plan = explain(
+				"SELECT * FROM clients c WHERE c.id_type = 'CC' AND c.id_number = 'ID-4242' AND c.user_id = 43");
+
+		assertThat(plan).doesNotContain("Seq Scan").contains("Index");
+	}
+
+	@Test
+	void ownershipCheckByIdAndUserUsesAnIndex() throws Exception {
+		String plan = explain("SELECT count(*) > 0 FROM clients c WHERE c.client_id = 4242 AND c.user_id = 43");
+
+		assertThat(plan).doesNotContain("Seq Scan").contains("Index");
+	}
+
+	@Test
+	void substringSearchUsesTrigramIndex() throws Exception {
+		String plan = explain("SELECT * FROM clients c WHERE c.name ILIKE '%umber 4242%' ESCAPE '!' "
+				+ "OR c.surname ILIKE '%umber 4242%' ESCAPE '!' OR c.id_number ILIKE '%umber 4242%' ESCAPE '!'");
+
+		assertThat(plan).doesNotContain("Seq Scan").contains("idx_clients_surname_trgm");
+	}
+
+	@Test
+	void substringSearchByUserAvoidsSequentialScan() throws Exception {
+		String plan = explain("SELECT * FROM clients c WHERE c.user_id = 42 AND c.client_id > 0 "
+				+ "AND (c.name ILIKE '%umber 4242%' ESCAPE '!' OR c.surname ILIKE '%umber 4242%' ESCAPE '!' "
+				+ "OR c.id_number ILIKE '%umber 4242%' ESCAPE '!') ORDER BY c.client_id LIMIT 101");
+
+		assertThat(plan).doesNotContain("Seq Scan");
+	}
+
+	private static String explain(String sql) throws Exception {
+		StringBuilder plan = new StringBuilder();
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+			while (resultSet.next()) {
+				plan.append(resultSet.getString(1)).append('\n');
+			}
+		}
+		return plan.toString();
+	}
+}
@@ -0,0 +1,145 @@
+package com.curootest.clientback.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.repository.ClientDTORepository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Guards the client read path: every listing must be a single statement projected straight into DTOs,
+ * without loading Client entities or their owning User.
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.hibernate.ddl-auto=none",
+		"outbox.relay.enabled=false",
+		"rate-limit.enabled=false" })
+class ClientReadPathTest {
+
+	private static final int USER_ID = 1;
+	private static final int CLIENTS_PER_USER = 50;
+
+	private static EmbeddedPostgres postgres;
+
+	@Autowired
+	private ClientDTORepository clientRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) throws Exception {
+		postgres = EmbeddedPostgres.start();
+		try (Connection connection = postgres.getPostgresDatabase().getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute(Files.readString(Path.of("scripts/schemas.sql")));
+			statement.execute("""
+					INSERT INTO Users (name, surname, email, password)
+					SELECT 'User', 'Number ' || u, 'user' || u || '@example.com', 'hash'
+					FROM generate_series(1, 2) AS u
+					""");
+			statement.execute("""
+					INSERT INTO Clients (client_id, user_id, id_type, id_number, name, surname)
+					SELECT c, 1 + (c % 2), 'CC', 'ID-' || c, 'Client', 'Number ' || c
+					FROM generate_series(1, %d) AS c
+					""".formatted(CLIENTS_PER_USER * 2));
+		}
+		registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+		registry.add("spring.datasource.username", () -> "postgres");
+		registry.add("spring.datasource.password", () -> "postgres");
+	}
+
+	@AfterAll
+	static void tearDown() throws Exception {
+		postgres.close();
+	}
+
+	@BeforeEach
+	void resetCachesAndStatistics() {
+		entityManagerFactory.getCache().evictAll();
+		SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+		sessionFactory.getCache().evictQueryRegions();
+		statistics = sessionFactory.getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void listingIsOneProjectionStatement() {
+		List<ClientDTO> clients = clientRepository.getAllByUserId(USER_ID);
+
+		assertThat(clients).hasSize(CLIENTS_PER_USER);
+		assertThat(clients.get(0).getVersion()).isNotNull();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertNoEntitiesLoaded();
+	}
+
+	@Test
+	void repeatedListingIsServedFromQueryCache() {
+		clientRepository.getAllByUserId(USER_ID);
+		statistics.clear();
+
+		assertThat(clientRepository.getAllByUserId(USER_ID)).hasSize(CLIENTS_PER_USER);
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	void pageIsOneProjectionStatement() {
+		assertThat(clientRepository.getPageByUserId(USER_ID, 0, 10)).hasSize(10);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertNoEntitiesLoaded();
+	}
+
+	@Test
+	void searchIsOneProjectionStatement() {
+		assertThat(clientRepository.searchByUserId(USER_ID, "Number", 0, 10)).hasSize(10);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertNoEntitiesLoaded();
+	}
+
+	@Test
+	void streamIsOneProjectionStatement() {
+		List<ClientDTO> clients = new ArrayList<>();
+		clientRepository.streamAllByUserId(USER_ID, clients::add);
+
+		assertThat(clients).hasSize(CLIENTS_PER_USER);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertNoEntitiesLoaded();
+	}
+
+	@Test
+	void lookupIsOneProjectionStatement() {
+		// Even client IDs belong to the user
+		assertThat(clientRepository.getByIdNumberAndUserId("CC", "ID-2", USER_ID)).isPresent();
+		assertThat(clientRepository.getByIdNumberAndUserId("CC", "ID-3", USER_ID)).isEmpty();
+		assertThat(clientRepository.getByIdNumbersAndUserId(Set.of("ID-1", "ID-2", "ID-4"), USER_ID)).hasSize(2);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertNoEntitiesLoaded();
+	}
+
+	private void assertNoEntitiesLoaded() {
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(statistics.getEntityFetchCount()).isZero();
+	}
+}
@@ -0,0 +1,181 @@
+package com.curootest.clientback.persistence.shard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.curootest.clientback.domain.ClientDTO;
+import com.curootest.clientback.domain.repository.ClientDTORepository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Spreads clients over two Postgres instances, the primary as shard 0 and a second one as shard 1
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.hibernate.ddl-auto=none",
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false",
+		"outbox.relay.enabled=false",
+		"rate-limit.enabled=false",
+		"datasource.shards.enabled=true",
+		"datasource.shards.directory-pool-size=" + ShardRoutingTest.DIRECTORY_POOL_SIZE,
+		"datasource.shards.connection-timeout-ms=5000",
+		"datasource.shards.placement-cache.ttl=0s",
+		"datasource.shards.rebalance.write-fence=0s",
+		"datasource.shards.rebalance.drain-delay=0s" })
+class ShardRoutingTest {
+
+	static final int DIRECTORY_POOL_SIZE = 2;
+	private static final int USERS = 20;
+	private static final ShardRing RING = new ShardRing(2, 128);
+
+	private static EmbeddedPostgres primary;
+	private static EmbeddedPostgres shard;
+
+	@Autowired
+	private ClientDTORepository clientRepository;
+
+	@Autowired
+	private ShardRebalancer rebalancer;
+
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) throws Exception {
+		primary = EmbeddedPostgres.start();
+		execute(primary.getPostgresDatabase(), Files.readString(Path.of("scripts/schemas.sql")));
+		execute(primary.getPostgresDatabase(), Files.readString(Path.of("scripts/shard/directory.sql")));
+		execute(primary.getPostgresDatabase(), """
+				INSERT INTO Users (name, surname, email, password)
+				SELECT 'User', 'No. ' || u, 'user' || u || '@example.com', 'hash'
+				FROM generate_series(1, %d) AS u
+				""".formatted(USERS));
+
+		shard = EmbeddedPostgres.start();
+		execute(shard.getPostgresDatabase(),
+				Files.readString(Path.of("scripts/shard/shard-schema.sql")).replace(":shard_index", "1"));
+
+		registry.add("spring.datasource.url", () -> primary.getJdbcUrl("postgres", "postgres"));
+		registry.add("spring.datasource.username", () -> "postgres");
+		registry.add("spring.datasource.password", () -> "postgres");
+		registry.add("datasource.shards.urls", () -> shard.getJdbcUrl("postgres", "postgres"));
+	}
+
+	@AfterAll
+	static void tearDown() throws Exception {
+		primary.close();
+		shard.close();
+	}
+
+	@Test
+	void clientsAreWrittenToTheShardOfTheirOwner() throws Exception {
+		int userId = userOn(1, 0);
+
+		clientRepository.saveClient(new ClientDTO(null, "Sharded", "Client", "CC", "SHARD-1", null), userId);
+
+		assertThat(countClients(shard.getPostgresDatabase(), "SHARD-1")).isEqualTo(1);
+		assertThat(countClients(primary.getPostgresDatabase(), "SHARD-1")).isZero();
+		assertThat(clientRepository.getAllByUserId(userId)).extracting(ClientDTO::getIdNumber)
+				.containsExactly("SHARD-1");
+	}
+
+	@Test
+	void idNumbersAreUniqueAcrossShards() throws Exception {
+		clientRepository.saveClient(new ClientDTO(null, "First", "Client", "CC", "DUP-1", null), userOn(0, 0));
+
+		assertThatThrownBy(() -> clientRepository.saveClient(
+				new ClientDTO(null, "Second", "Client", "CC", "DUP-1", null), userOn(1, 1)))
+				.isInstanceOf(DataIntegrityViolationException.class);
+		assertThat(countClients(shard.getPostgresDatabase(), "DUP-1")).isZero();
+	}
+
+	@Test
+	void movedUsersAreServedFromTheTargetShard() throws Exception {
+		int userId = userOn(0, 1);
+		ClientDTO saved = clientRepository.saveClient(
+				new ClientDTO(null, "Moving", "Client", "CC", "MOVE-1", null), userId);
+
+		assertThat(rebalancer.rebalance(Map.of(userId, 1))).isEqualTo(1);
+
+		assertThat(countClients(shard.getPostgresDatabase(), "MOVE-1")).isEqualTo(1);
+		assertThat(countClients(primary.getPostgresDatabase(), "MOVE-1")).isZero();
+		ClientDTO update = new ClientDTO(null, "Moved", "Client", "CC", "MOVE-1", null);
+		assertThat(clientRepository.updateClientByUserId(Integer.valueOf(saved.getId()), update, userId,
+				saved.getVersion())).extracting(ClientDTO::getName).isEqualTo("Moved");
+	}
+
+	@Test
+	void writersBeyondTheDirectoryPoolSizeComplete() throws Exception {
+		int writers = DIRECTORY_POOL_SIZE * 4;
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < writers; i++) {
+				int userId = 1 + i % USERS;
+				String idNumber = "CONCURRENT-" + i;
+				results.add(executor.submit(() -> {
+					start.await();
+					ClientDTO saved = clientRepository.saveClient(
+							new ClientDTO(null, "Concurrent", "Client", "CC", idNumber, null), userId);
+					return clientRepository.deleteClientByUserId(Integer.valueOf(saved.getId()), userId);
+				}));
+			}
+			start.countDown();
+
+			for (Future<Boolean> result : results) {
+				assertThat(result.get(30, TimeUnit.SECONDS)).isTrue();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The nth user, counting from 0, whose clients the hash ring places on the given shard
+	 */
+	private static int userOn(int shardIndex, int nth) {
+		return IntStream.rangeClosed(1, USERS).filter(userId -> RING.shardOf(userId) == shardIndex)
+				.skip(nth).findFirst().orElseThrow();
+	}
+
+	private static void execute(DataSource dataSource, String sql) throws Exception {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	private static int countClients(DataSource dataSource, String idNumber) throws Exception {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(
+						"SELECT count(*) FROM Clients WHERE id_number = '" + idNumber + "'")) {
+			resultSet.next();
+			return resultSet.getInt(1);
+		}
+	}
+}